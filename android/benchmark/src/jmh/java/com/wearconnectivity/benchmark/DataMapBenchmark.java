@@ -0,0 +1,41 @@
+package com.wearconnectivity.benchmark;
+
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.wearable.DataMap;
+import com.wearconnectivity.WearConnectivityDataMaps;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Conversion of the sendData maps to DataMaps, and of the received DataMaps back to JS maps.
+ */
+@State(Scope.Benchmark)
+public class DataMapBenchmark {
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private WritableMap data;
+    private DataMap dataMap;
+
+    @Setup
+    public void setUp() {
+        data = Payloads.telemetry(entries);
+        dataMap = putAll();
+    }
+
+    @Benchmark
+    public DataMap putAll() {
+        DataMap result = new DataMap();
+        WearConnectivityDataMaps.putAll(result, data);
+        return result;
+    }
+
+    @Benchmark
+    public WritableMap toWritableMap() {
+        return WearConnectivityDataMaps.toWritableMap(dataMap);
+    }
+}
@@ -0,0 +1,57 @@
+package com.wearconnectivity.benchmark;
+
+import com.google.android.gms.wearable.Asset;
+import com.wearconnectivity.WearConnectivityFiles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Saving of the received files and creation of the Assets of the sent ones.
+ */
+@State(Scope.Benchmark)
+public class FileBenchmark {
+    @Param({"65536", "1048576", "16777216"})
+    public int fileSize;
+
+    private byte[] content;
+    private File source;
+    private File target;
+
+    @Setup
+    public void setUp() throws IOException {
+        content = new byte[fileSize];
+        new Random(fileSize).nextBytes(content);
+        source = File.createTempFile("wear-connectivity-source", ".bin");
+        target = File.createTempFile("wear-connectivity-target", ".bin");
+        Files.write(source.toPath(), content);
+    }
+
+    @TearDown
+    public void tearDown() {
+        source.delete();
+        target.delete();
+    }
+
+    @Benchmark
+    public long saveFile() throws IOException {
+        return WearConnectivityFiles.saveFile(new ByteArrayInputStream(content), target, completedBytes -> {
+        });
+    }
+
+    @Benchmark
+    public void createAssetFromFile() throws IOException {
+        Asset asset = WearConnectivityFiles.createAssetFromFile(source);
+        asset.getFd().close();
+    }
+}
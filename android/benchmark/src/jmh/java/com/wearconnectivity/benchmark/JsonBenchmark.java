@@ -0,0 +1,47 @@
+package com.wearconnectivity.benchmark;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.wearconnectivity.JSONArguments;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoding of the inbound JSON messages and serialization of the outbound ones in sendMessageToClient.
+ */
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private WritableMap message;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        message = Payloads.telemetry(entries);
+        payload = JSONArguments.toJson(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ReadableMap decodeJsonObject() {
+        return JSONArguments.fromJSONObject(new JSONObject(new String(payload, StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public ReadableMap decodeJsonStream() {
+        return JSONArguments.fromJson(payload);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return JSONArguments.toJson(message).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,40 @@
+package com.wearconnectivity.benchmark;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Random;
+
+/**
+ * Payloads shaped like the messages and DataItems of a watch app.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * A telemetry map of entries maps, with strings, ints, doubles and booleans, plus a series of readings.
+     */
+    static WritableMap telemetry(int entries) {
+        Random random = new Random(entries);
+        WritableArray items = Arguments.createArray();
+        WritableArray readings = Arguments.createArray();
+        for (int i = 0; i < entries; i++) {
+            WritableMap item = Arguments.createMap();
+            item.putString("name", "metric_" + (i % 10));
+            item.putInt("value", random.nextInt(1000));
+            item.putDouble("ratio", random.nextDouble());
+            item.putBoolean("ok", i % 3 != 0);
+            item.putDouble("ts", 1729250000123d + i);
+            items.pushMap(item);
+            readings.pushDouble(random.nextGaussian());
+        }
+        WritableMap map = Arguments.createMap();
+        map.putString("device", "Pixel Watch");
+        map.putArray("entries", items);
+        map.putArray("readings", readings);
+        return map;
+    }
+}
@@ -0,0 +1,35 @@
+package android.os;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Stand-in of the Android ParcelFileDescriptor, read only, backed by a FileInputStream.
+ */
+public class ParcelFileDescriptor implements Closeable {
+    public static final int MODE_READ_ONLY = 0x10000000;
+    private final FileInputStream stream;
+
+    private ParcelFileDescriptor(FileInputStream stream) {
+        this.stream = stream;
+    }
+
+    public static ParcelFileDescriptor open(File file, int mode) throws IOException {
+        if (mode != MODE_READ_ONLY) {
+            throw new IllegalArgumentException("Only MODE_READ_ONLY is supported");
+        }
+        return new ParcelFileDescriptor(new FileInputStream(file));
+    }
+
+    public FileDescriptor getFileDescriptor() throws IOException {
+        return stream.getFD();
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
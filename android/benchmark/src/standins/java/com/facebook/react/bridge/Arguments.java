@@ -0,0 +1,14 @@
+package com.facebook.react.bridge;
+
+/**
+ * Stand-in of the React Native Arguments, backed by the Java only collections instead of native ones.
+ */
+public class Arguments {
+    public static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+
+    public static WritableArray createArray() {
+        return new JavaOnlyArray();
+    }
+}
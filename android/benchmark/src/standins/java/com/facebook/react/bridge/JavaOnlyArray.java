@@ -0,0 +1,124 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in of the React Native JavaOnlyArray, numbers are stored as doubles like in the native arrays.
+ */
+public class JavaOnlyArray implements WritableArray {
+    private final List<Object> values = new ArrayList<>();
+
+    static ReadableType getType(Object value) {
+        if (value == null) {
+            return ReadableType.Null;
+        } else if (value instanceof Boolean) {
+            return ReadableType.Boolean;
+        } else if (value instanceof Number) {
+            return ReadableType.Number;
+        } else if (value instanceof String) {
+            return ReadableType.String;
+        } else if (value instanceof ReadableMap) {
+            return ReadableType.Map;
+        }
+        return ReadableType.Array;
+    }
+
+    static Object toJavaObject(Object value) {
+        if (value instanceof ReadableMap) {
+            return ((ReadableMap) value).toHashMap();
+        } else if (value instanceof ReadableArray) {
+            return ((ReadableArray) value).toArrayList();
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return values.get(index) == null;
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return (Boolean) values.get(index);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return ((Number) values.get(index)).doubleValue();
+    }
+
+    @Override
+    public int getInt(int index) {
+        return ((Number) values.get(index)).intValue();
+    }
+
+    @Override
+    public String getString(int index) {
+        return (String) values.get(index);
+    }
+
+    @Override
+    public ReadableArray getArray(int index) {
+        return (ReadableArray) values.get(index);
+    }
+
+    @Override
+    public ReadableMap getMap(int index) {
+        return (ReadableMap) values.get(index);
+    }
+
+    @Override
+    public ReadableType getType(int index) {
+        return getType(values.get(index));
+    }
+
+    @Override
+    public ArrayList<Object> toArrayList() {
+        ArrayList<Object> arrayList = new ArrayList<>(values.size());
+        for (Object value : values) {
+            arrayList.add(toJavaObject(value));
+        }
+        return arrayList;
+    }
+
+    @Override
+    public void pushNull() {
+        values.add(null);
+    }
+
+    @Override
+    public void pushBoolean(boolean value) {
+        values.add(value);
+    }
+
+    @Override
+    public void pushDouble(double value) {
+        values.add(value);
+    }
+
+    @Override
+    public void pushInt(int value) {
+        values.add((double) value);
+    }
+
+    @Override
+    public void pushString(String value) {
+        values.add(value);
+    }
+
+    @Override
+    public void pushArray(ReadableArray array) {
+        values.add(array);
+    }
+
+    @Override
+    public void pushMap(ReadableMap map) {
+        values.add(map);
+    }
+}
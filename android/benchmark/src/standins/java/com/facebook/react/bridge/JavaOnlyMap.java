@@ -0,0 +1,118 @@
+package com.facebook.react.bridge;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stand-in of the React Native JavaOnlyMap, numbers are stored as doubles like in the native maps.
+ */
+public class JavaOnlyMap implements WritableMap {
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    @Override
+    public boolean hasKey(String name) {
+        return values.containsKey(name);
+    }
+
+    @Override
+    public boolean isNull(String name) {
+        return values.get(name) == null;
+    }
+
+    @Override
+    public boolean getBoolean(String name) {
+        return (Boolean) values.get(name);
+    }
+
+    @Override
+    public double getDouble(String name) {
+        return ((Number) values.get(name)).doubleValue();
+    }
+
+    @Override
+    public int getInt(String name) {
+        return ((Number) values.get(name)).intValue();
+    }
+
+    @Override
+    public String getString(String name) {
+        return (String) values.get(name);
+    }
+
+    @Override
+    public ReadableArray getArray(String name) {
+        return (ReadableArray) values.get(name);
+    }
+
+    @Override
+    public ReadableMap getMap(String name) {
+        return (ReadableMap) values.get(name);
+    }
+
+    @Override
+    public ReadableType getType(String name) {
+        return JavaOnlyArray.getType(values.get(name));
+    }
+
+    @Override
+    public ReadableMapKeySetIterator keySetIterator() {
+        Iterator<String> keys = values.keySet().iterator();
+        return new ReadableMapKeySetIterator() {
+            @Override
+            public boolean hasNextKey() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public String nextKey() {
+                return keys.next();
+            }
+        };
+    }
+
+    @Override
+    public HashMap<String, Object> toHashMap() {
+        HashMap<String, Object> hashMap = new HashMap<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            hashMap.put(entry.getKey(), JavaOnlyArray.toJavaObject(entry.getValue()));
+        }
+        return hashMap;
+    }
+
+    @Override
+    public void putNull(String key) {
+        values.put(key, null);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        values.put(key, (double) value);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putArray(String key, ReadableArray value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putMap(String key, ReadableMap value) {
+        values.put(key, value);
+    }
+}
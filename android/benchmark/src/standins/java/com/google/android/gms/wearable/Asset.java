@@ -0,0 +1,22 @@
+package com.google.android.gms.wearable;
+
+import android.os.ParcelFileDescriptor;
+
+/**
+ * Stand-in of the Wearable Asset, it only holds the file descriptor.
+ */
+public class Asset {
+    private final ParcelFileDescriptor fd;
+
+    private Asset(ParcelFileDescriptor fd) {
+        this.fd = fd;
+    }
+
+    public static Asset createFromFd(ParcelFileDescriptor fd) {
+        return new Asset(fd);
+    }
+
+    public ParcelFileDescriptor getFd() {
+        return fd;
+    }
+}
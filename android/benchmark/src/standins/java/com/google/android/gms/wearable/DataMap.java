@@ -0,0 +1,57 @@
+package com.google.android.gms.wearable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stand-in of the Wearable DataMap, the values are kept in a HashMap like in the Bundle of the real one.
+ */
+public class DataMap {
+    private final Map<String, Object> values = new HashMap<>();
+
+    public Set<String> keySet() {
+        return values.keySet();
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    public void putDouble(String key, double value) {
+        values.put(key, value);
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public void putDataMap(String key, DataMap value) {
+        values.put(key, value);
+    }
+
+    public void putByteArray(String key, byte[] value) {
+        values.put(key, value);
+    }
+
+    public void putLongArray(String key, long[] value) {
+        values.put(key, value);
+    }
+
+    public void putStringArray(String key, String[] value) {
+        values.put(key, value);
+    }
+
+    public void putDataMapArrayList(String key, ArrayList<DataMap> value) {
+        values.put(key, value);
+    }
+}
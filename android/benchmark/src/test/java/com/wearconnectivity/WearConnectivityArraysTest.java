@@ -0,0 +1,105 @@
+package com.wearconnectivity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.WritableArray;
+import com.google.android.gms.wearable.DataMap;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class WearConnectivityArraysTest {
+
+    private static byte[] encode(JavaOnlyArray array) {
+        DataMap dataMap = new DataMap();
+        WearConnectivityArrays.put(dataMap, "key", array);
+        return (byte[]) dataMap.get("key");
+    }
+
+    private static void assertRoundTrip(JavaOnlyArray array) {
+        WritableArray decoded = WearConnectivityArrays.decode(encode(array));
+        assertEquals(WearConnectivityCodecTest.normalize(array.toArrayList()), WearConnectivityCodecTest.normalize(decoded.toArrayList()));
+    }
+
+    @Test
+    public void integersAreLongArrays() {
+        JavaOnlyArray array = new JavaOnlyArray();
+        array.pushInt(1);
+        array.pushDouble(-9007199254740991d);
+        DataMap dataMap = new DataMap();
+        WearConnectivityArrays.put(dataMap, "key", array);
+        assertArrayEquals(new long[]{1, -9007199254740991L}, (long[]) dataMap.get("key"));
+    }
+
+    @Test
+    public void doublesRoundTrip() {
+        JavaOnlyArray array = new JavaOnlyArray();
+        array.pushDouble(0.5);
+        array.pushDouble(-0.0);
+        array.pushDouble(Double.NaN);
+        array.pushDouble(1e300);
+        byte[] encoded = encode(array);
+        assertEquals(WearConnectivityFrames.HEADER_SIZE + 4 * 8, encoded.length);
+        assertEquals(WearConnectivityArrays.ELEMENTS_DOUBLE, encoded[2]);
+        WritableArray decoded = WearConnectivityArrays.decode(encoded);
+        for (int i = 0; i < array.size(); i++) {
+            assertEquals(Double.doubleToRawLongBits(array.getDouble(i)), Double.doubleToRawLongBits(decoded.getDouble(i)));
+        }
+    }
+
+    @Test
+    public void booleansRoundTrip() {
+        JavaOnlyArray array = new JavaOnlyArray();
+        array.pushBoolean(true);
+        array.pushBoolean(false);
+        array.pushBoolean(true);
+        assertArrayEquals(new byte[]{(byte) 0xC1, 0x07, 0x02, 1, 0, 1}, encode(array));
+        assertRoundTrip(array);
+    }
+
+    @Test
+    public void mixedRoundTrip() {
+        JavaOnlyArray nested = new JavaOnlyArray();
+        nested.pushString("x");
+        JavaOnlyMap map = new JavaOnlyMap();
+        map.putInt("a", 1);
+        JavaOnlyArray array = new JavaOnlyArray();
+        array.pushNull();
+        array.pushInt(3);
+        array.pushString("s");
+        array.pushArray(nested);
+        array.pushMap(map);
+        byte[] encoded = encode(array);
+        assertEquals(WearConnectivityArrays.ELEMENTS_TAGGED, encoded[2]);
+        assertRoundTrip(array);
+    }
+
+    @Test
+    public void rejectsMalformedArrays() {
+        JavaOnlyArray doubles = new JavaOnlyArray();
+        doubles.pushDouble(0.5);
+        byte[] encodedDoubles = encode(doubles);
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityArrays.decode(Arrays.copyOf(encodedDoubles, encodedDoubles.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityArrays.decode(new byte[]{(byte) 0xC1, 0x07, 0x09}));
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityArrays.decode(new byte[]{1, 2, 3}));
+
+        JavaOnlyArray mixed = new JavaOnlyArray();
+        mixed.pushNull();
+        mixed.pushString("abc");
+        byte[] encodedMixed = encode(mixed);
+        for (int length = WearConnectivityFrames.HEADER_SIZE; length < encodedMixed.length; length++) {
+            byte[] truncated = Arrays.copyOf(encodedMixed, length);
+            assertThrows("length " + length, IllegalArgumentException.class, () -> WearConnectivityArrays.decode(truncated));
+        }
+        byte[] padded = Arrays.copyOf(encodedMixed, encodedMixed.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityArrays.decode(padded));
+        assertTrue(WearConnectivityArrays.isEncoded(encodedMixed));
+    }
+}
@@ -0,0 +1,153 @@
+package com.wearconnectivity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class WearConnectivityCodecTest {
+
+    static JavaOnlyMap sampleMap() {
+        JavaOnlyArray nested = new JavaOnlyArray();
+        nested.pushInt(1);
+        nested.pushString("two");
+        nested.pushNull();
+        JavaOnlyArray array = new JavaOnlyArray();
+        array.pushDouble(1.5);
+        array.pushBoolean(true);
+        array.pushArray(nested);
+        JavaOnlyMap inner = new JavaOnlyMap();
+        inner.putString("unicode", "h\u00e9llo \u4e16\u754c \ud83d\ude00");
+        inner.putString("empty", "");
+        JavaOnlyMap map = new JavaOnlyMap();
+        map.putNull("null");
+        map.putBoolean("false", false);
+        map.putBoolean("true", true);
+        map.putInt("int", 42);
+        map.putDouble("negative", -123456);
+        map.putDouble("maxSafe", 9007199254740991d);
+        map.putDouble("minSafe", -9007199254740991d);
+        map.putDouble("unsafe", 9007199254740993d);
+        map.putDouble("fraction", 0.1);
+        map.putDouble("negativeZero", -0.0);
+        map.putDouble("infinity", Double.POSITIVE_INFINITY);
+        map.putArray("array", array);
+        map.putMap("map", inner);
+        return map;
+    }
+
+    /**
+     * Numbers as doubles, the decoder returns ints for small integers.
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Map) {
+            Map<String, Object> map = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put((String) entry.getKey(), normalize(entry.getValue()));
+            }
+            return map;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                list.add(normalize(item));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    @Test
+    public void roundTrip() {
+        JavaOnlyMap map = sampleMap();
+        WritableMap decoded = WearConnectivityCodec.decode(WearConnectivityCodec.encode(map));
+        assertEquals(normalize(map.toHashMap()), normalize(decoded.toHashMap()));
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(decoded.getDouble("negativeZero")));
+    }
+
+    @Test
+    public void roundTripEmptyMap() {
+        WritableMap decoded = WearConnectivityCodec.decode(WearConnectivityCodec.encode(new JavaOnlyMap()));
+        assertTrue(decoded.toHashMap().isEmpty());
+    }
+
+    @Test
+    public void writesTheDocumentedHeader() {
+        JavaOnlyMap map = new JavaOnlyMap();
+        map.putInt("a", -1);
+        byte[] encoded = WearConnectivityCodec.encode(map);
+        // frame marker, map frame, flags, version, map tag, 5 byte size, key "a", int tag, zigzag(-1)
+        assertArrayEquals(new byte[]{(byte) 0xC1, 0x02, 0x00, 0x01, 0x07, (byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x00,
+                0x01, 'a', 0x03, 0x01}, encoded);
+        assertTrue(WearConnectivityCodec.isEncoded(encoded));
+    }
+
+    @Test
+    public void jsonIsNotEncoded() {
+        assertFalse(WearConnectivityCodec.isEncoded("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(WearConnectivityCodec.isEncoded(new byte[0]));
+        assertFalse(WearConnectivityCodec.isEncoded(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityCodec.decode("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void rejectsEveryTruncation() {
+        byte[] encoded = WearConnectivityCodec.encode(sampleMap());
+        for (int length = 0; length < encoded.length; length++) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows("length " + length, IllegalArgumentException.class, () -> WearConnectivityCodec.decode(truncated));
+        }
+    }
+
+    @Test
+    public void rejectsTrailingBytes() {
+        byte[] encoded = WearConnectivityCodec.encode(sampleMap());
+        byte[] padded = Arrays.copyOf(encoded, encoded.length + 3);
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityCodec.decode(padded));
+    }
+
+    @Test
+    public void rejectsNewerVersion() {
+        byte[] encoded = WearConnectivityCodec.encode(sampleMap());
+        encoded[3] = (byte) (WearConnectivityCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityCodec.decode(encoded));
+    }
+
+    @Test
+    public void rejectsMalformedValues() {
+        // the root is not a map
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityCodec.decode(new byte[]{(byte) 0xC1, 0x02, 0x00, 0x01, 0x06, 0x00}));
+        // unknown tag
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityCodec.decode(new byte[]{(byte) 0xC1, 0x02, 0x00, 0x01, 0x07, 0x01, 0x01, 'a', 0x09}));
+        // varint longer than 64 bits
+        byte[] varint = new byte[]{(byte) 0xC1, 0x02, 0x00, 0x01, 0x07, 0x01, 0x01, 'a', 0x03,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, 0x01};
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityCodec.decode(varint));
+        // string longer than the payload
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityCodec.decode(new byte[]{(byte) 0xC1, 0x02, 0x00, 0x01, 0x07, 0x01, 0x7F, 'a'}));
+        // negative length
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityCodec.decode(new byte[]{(byte) 0xC1, 0x02, 0x00, 0x01, 0x07,
+                        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}));
+    }
+}
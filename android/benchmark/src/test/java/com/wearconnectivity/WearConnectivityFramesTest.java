@@ -0,0 +1,143 @@
+package com.wearconnectivity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class WearConnectivityFramesTest {
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void batchRoundTrip() {
+        List<WearConnectivityFrames.Entry> entries = Arrays.asList(
+                new WearConnectivityFrames.Entry("/a", bytes(10, 1)),
+                new WearConnectivityFrames.Entry("/\u00e9t\u00e9", new byte[0]),
+                new WearConnectivityFrames.Entry("", bytes(1000, 2)));
+        byte[] frame = WearConnectivityFrames.packBatch(entries);
+        assertTrue(WearConnectivityFrames.isFrame(frame, WearConnectivityFrames.TYPE_BATCH));
+        int entriesSize = 0;
+        for (WearConnectivityFrames.Entry entry : entries) {
+            entriesSize += entry.getFrameSize();
+        }
+        assertEquals(WearConnectivityFrames.getBatchSize(entriesSize), frame.length);
+        List<WearConnectivityFrames.Entry> unpacked = WearConnectivityFrames.unpackBatch(frame);
+        assertEquals(entries.size(), unpacked.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(entries.get(i).path, unpacked.get(i).path);
+            assertArrayEquals(entries.get(i).data, unpacked.get(i).data);
+        }
+    }
+
+    @Test
+    public void batchLayout() {
+        byte[] frame = WearConnectivityFrames.packBatch(Arrays.asList(
+                new WearConnectivityFrames.Entry("/p", new byte[]{9})));
+        assertArrayEquals(new byte[]{(byte) 0xC1, 0x01, 0x00, 0x00, 0x01, 0x00, 0x02, '/', 'p', 0x00, 0x00, 0x00, 0x01, 9}, frame);
+    }
+
+    @Test
+    public void batchRejectsTruncationAndTrailingBytes() {
+        byte[] frame = WearConnectivityFrames.packBatch(Arrays.asList(
+                new WearConnectivityFrames.Entry("/a", bytes(20, 3)),
+                new WearConnectivityFrames.Entry("/b", bytes(5, 4))));
+        for (int length = 0; length < frame.length; length++) {
+            byte[] truncated = Arrays.copyOf(frame, length);
+            assertThrows("length " + length, IllegalArgumentException.class, () -> WearConnectivityFrames.unpackBatch(truncated));
+        }
+        byte[] padded = Arrays.copyOf(frame, frame.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityFrames.unpackBatch(padded));
+    }
+
+    @Test
+    public void batchRejectsNegativeDataLength() {
+        byte[] frame = new byte[]{(byte) 0xC1, 0x01, 0x00, 0x00, 0x01, 0x00, 0x00, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityFrames.unpackBatch(frame));
+    }
+
+    @Test
+    public void correlatedRoundTrip() {
+        byte[] payload = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        for (byte type : new byte[]{WearConnectivityFrames.TYPE_REQUEST, WearConnectivityFrames.TYPE_RESPONSE}) {
+            byte[] frame = WearConnectivityFrames.packCorrelated(type, -42L, payload);
+            assertTrue(WearConnectivityFrames.isFrame(frame, type));
+            assertTrue(WearConnectivityFrames.isCorrelated(frame));
+            assertEquals(-42L, WearConnectivityFrames.getCorrelationId(frame));
+            assertArrayEquals(payload, WearConnectivityFrames.getCorrelatedPayload(frame));
+        }
+        byte[] empty = WearConnectivityFrames.packCorrelated(WearConnectivityFrames.TYPE_REQUEST, 7L, new byte[0]);
+        assertArrayEquals(new byte[0], WearConnectivityFrames.getCorrelatedPayload(empty));
+    }
+
+    @Test
+    public void truncatedCorrelatedIsNotCorrelated() {
+        byte[] frame = WearConnectivityFrames.packCorrelated(WearConnectivityFrames.TYPE_REQUEST, 1L, new byte[0]);
+        assertFalse(WearConnectivityFrames.isCorrelated(Arrays.copyOf(frame, frame.length - 1)));
+        assertFalse(WearConnectivityFrames.isCorrelated(WearConnectivityFrames.packBatch(Arrays.asList(
+                new WearConnectivityFrames.Entry("/a", new byte[8])))));
+    }
+
+    @Test
+    public void fragmentRoundTrip() {
+        byte[] data = bytes(1000, 5);
+        int maxFrameBytes = WearConnectivityFrames.FRAGMENT_OVERHEAD + 100;
+        List<byte[]> frames = WearConnectivityFrames.packFragments(123L, data, maxFrameBytes);
+        assertEquals(10, frames.size());
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+        for (int i = 0; i < frames.size(); i++) {
+            byte[] frame = frames.get(i);
+            assertTrue(frame.length <= maxFrameBytes);
+            WearConnectivityFrames.Fragment fragment = WearConnectivityFrames.unpackFragment(frame);
+            assertEquals(123L, fragment.messageId);
+            assertEquals(i, fragment.index);
+            assertEquals(frames.size(), fragment.count);
+            reassembled.write(fragment.data, 0, fragment.data.length);
+        }
+        assertArrayEquals(data, reassembled.toByteArray());
+    }
+
+    @Test
+    public void fragmentLastFrameIsShorter() {
+        List<byte[]> frames = WearConnectivityFrames.packFragments(1L, bytes(250, 6), WearConnectivityFrames.FRAGMENT_OVERHEAD + 100);
+        assertEquals(3, frames.size());
+        assertEquals(50, WearConnectivityFrames.unpackFragment(frames.get(2)).data.length);
+    }
+
+    @Test
+    public void fragmentRejectsMalformedFrames() {
+        byte[] frame = WearConnectivityFrames.packFragments(1L, bytes(10, 7), 100).get(0);
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityFrames.unpackFragment(Arrays.copyOf(frame, WearConnectivityFrames.FRAGMENT_OVERHEAD - 1)));
+        // index past the count
+        byte[] badIndex = frame.clone();
+        badIndex[12] = 0x05;
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityFrames.unpackFragment(badIndex));
+        // zero count
+        byte[] zeroCount = frame.clone();
+        zeroCount[13] = 0;
+        zeroCount[14] = 0;
+        assertThrows(IllegalArgumentException.class, () -> WearConnectivityFrames.unpackFragment(zeroCount));
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityFrames.unpackFragment(WearConnectivityFrames.packCorrelated(WearConnectivityFrames.TYPE_REQUEST, 1L, new byte[20])));
+    }
+
+    @Test
+    public void fragmentRejectsTooSmallFrames() {
+        assertThrows(IllegalArgumentException.class,
+                () -> WearConnectivityFrames.packFragments(1L, new byte[10], WearConnectivityFrames.FRAGMENT_OVERHEAD));
+    }
+}
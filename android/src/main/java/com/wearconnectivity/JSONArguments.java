@@ -6,13 +6,132 @@ import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 
 public class JSONArguments {
+    /**
+     * Serializes a JS map to JSON, as sent to the nodes that do not read binary payloads.
+     */
+    public static String toJson(ReadableMap map) {
+        return new JSONObject(map.toHashMap()).toString();
+    }
+
+    /**
+     * Reads a UTF-8 JSON object straight into a WritableMap, without building an org.json tree
+     * nor decoding the whole payload to a String. Integers that do not fit in an int are kept as doubles.
+     * Throws IllegalArgumentException when data is not a JSON object.
+     */
+    public static WritableMap fromJson(byte[] data) {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+        try {
+            WritableMap map = readMap(reader);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IllegalArgumentException("Unexpected content after the JSON object");
+            }
+            return map;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid JSON payload: " + e.getMessage(), e);
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static WritableMap readMap(JsonReader reader) throws IOException {
+        WritableMap map = Arguments.createMap();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            switch (reader.peek()) {
+                case STRING:
+                    map.putString(key, reader.nextString());
+                    break;
+                case NUMBER:
+                    double number = reader.nextDouble();
+                    if (isInt(number)) {
+                        map.putInt(key, (int) number);
+                    } else {
+                        map.putDouble(key, number);
+                    }
+                    break;
+                case BOOLEAN:
+                    map.putBoolean(key, reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    map.putNull(key);
+                    break;
+                case BEGIN_OBJECT:
+                    map.putMap(key, readMap(reader));
+                    break;
+                case BEGIN_ARRAY:
+                    map.putArray(key, readArray(reader));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected token: " + reader.peek());
+            }
+        }
+        reader.endObject();
+        return map;
+    }
+
+    private static WritableArray readArray(JsonReader reader) throws IOException {
+        WritableArray array = Arguments.createArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            switch (reader.peek()) {
+                case STRING:
+                    array.pushString(reader.nextString());
+                    break;
+                case NUMBER:
+                    double number = reader.nextDouble();
+                    if (isInt(number)) {
+                        array.pushInt((int) number);
+                    } else {
+                        array.pushDouble(number);
+                    }
+                    break;
+                case BOOLEAN:
+                    array.pushBoolean(reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    array.pushNull();
+                    break;
+                case BEGIN_OBJECT:
+                    array.pushMap(readMap(reader));
+                    break;
+                case BEGIN_ARRAY:
+                    array.pushArray(readArray(reader));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected token: " + reader.peek());
+            }
+        }
+        reader.endArray();
+        return array;
+    }
+
+    /**
+     * True when the number is an int, -0 stays a double.
+     */
+    private static boolean isInt(double number) {
+        return number == (int) number && (number != 0 || Double.doubleToRawLongBits(number) == 0);
+    }
+
     public static ReadableMap fromJSONObject(JSONObject jsonObject) {
         WritableMap map = Arguments.createMap();
         Iterator<String> keys = jsonObject.keys();
@@ -24,9 +143,9 @@ public class JSONArguments {
                     map.putString(key, (String) value);
                 } else if (value instanceof Boolean) {
                     map.putBoolean(key, (Boolean) value);
-                } else if (value instanceof Integer || value instanceof Long) {
-                    map.putInt(key, ((Number) value).intValue());
-                } else if (value instanceof Float || value instanceof Double) {
+                } else if (value instanceof Integer) {
+                    map.putInt(key, (Integer) value);
+                } else if (value instanceof Long || value instanceof Float || value instanceof Double) {
                     map.putDouble(key, ((Number) value).doubleValue());
                 } else if (value == JSONObject.NULL) {
                     map.putNull(key);
@@ -53,9 +172,9 @@ public class JSONArguments {
                     array.pushString((String) value);
                 } else if (value instanceof Boolean) {
                     array.pushBoolean((Boolean) value);
-                } else if (value instanceof Integer || value instanceof Long) {
-                    array.pushInt(((Number) value).intValue());
-                } else if (value instanceof Float || value instanceof Double) {
+                } else if (value instanceof Integer) {
+                    array.pushInt((Integer) value);
+                } else if (value instanceof Long || value instanceof Float || value instanceof Double) {
                     array.pushDouble(((Number) value).doubleValue());
                 } else if (value == JSONObject.NULL) {
                     array.pushNull();
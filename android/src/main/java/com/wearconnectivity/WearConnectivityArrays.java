@@ -0,0 +1,144 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.google.android.gms.wearable.DataMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Lossless encoding of the JS arrays of a DataMap.
+ * Integer arrays are stored as long[], string arrays as String[] and map arrays as DataMap lists.
+ * The other arrays are stored as a byte[] {@link WearConnectivityFrames#TYPE_ARRAY} frame whose flags byte
+ * tells the element type: packed 8 byte doubles, one byte per boolean, or the tagged values of
+ * {@link WearConnectivityCodec} for arrays holding nulls, nested arrays or mixed types.
+ */
+public final class WearConnectivityArrays {
+    public static final byte ELEMENTS_DOUBLE = 1;
+    public static final byte ELEMENTS_BOOLEAN = 2;
+    public static final byte ELEMENTS_TAGGED = 3;
+    private static final double MAX_SAFE_INTEGER = 9007199254740991d;
+
+    private WearConnectivityArrays() {
+    }
+
+    public static boolean isEncoded(byte[] data) {
+        return WearConnectivityFrames.isFrame(data, WearConnectivityFrames.TYPE_ARRAY);
+    }
+
+    public static void put(DataMap dataMap, String key, ReadableArray array) {
+        int size = array.size();
+        ReadableType type = size > 0 ? array.getType(0) : ReadableType.Number;
+        for (int i = 1; i < size && type != null; i++) {
+            if (array.getType(i) != type) {
+                type = null;
+            }
+        }
+        if (type == ReadableType.Number) {
+            putNumbers(dataMap, key, array);
+        } else if (type == ReadableType.String) {
+            String[] strings = new String[size];
+            for (int i = 0; i < size; i++) {
+                strings[i] = array.getString(i);
+            }
+            dataMap.putStringArray(key, strings);
+        } else if (type == ReadableType.Map) {
+            ArrayList<DataMap> dataMaps = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                DataMap item = new DataMap();
+                WearConnectivityDataMaps.putAll(item, array.getMap(i));
+                dataMaps.add(item);
+            }
+            dataMap.putDataMapArrayList(key, dataMaps);
+        } else if (type == ReadableType.Boolean) {
+            ByteBuffer buffer = allocate(ELEMENTS_BOOLEAN, size);
+            for (int i = 0; i < size; i++) {
+                buffer.put((byte) (array.getBoolean(i) ? 1 : 0));
+            }
+            dataMap.putByteArray(key, buffer.array());
+        } else {
+            WearConnectivityCodec.Writer writer = new WearConnectivityCodec.Writer(64 + size * 4);
+            writer.writeByte(WearConnectivityFrames.MAGIC);
+            writer.writeByte(WearConnectivityFrames.TYPE_ARRAY);
+            writer.writeByte(ELEMENTS_TAGGED);
+            WearConnectivityCodec.writeArray(writer, array);
+            dataMap.putByteArray(key, writer.toByteArray());
+        }
+    }
+
+    /**
+     * Stores safe integers as long[], any other number array as packed doubles, both without boxing.
+     */
+    private static void putNumbers(DataMap dataMap, String key, ReadableArray array) {
+        int size = array.size();
+        double[] values = new double[size];
+        boolean integers = true;
+        for (int i = 0; i < size; i++) {
+            double value = array.getDouble(i);
+            values[i] = value;
+            integers &= value == Math.rint(value) && Math.abs(value) <= MAX_SAFE_INTEGER
+                    && !(value == 0 && Double.doubleToRawLongBits(value) != 0);
+        }
+        if (integers) {
+            long[] longs = new long[size];
+            for (int i = 0; i < size; i++) {
+                longs[i] = (long) values[i];
+            }
+            dataMap.putLongArray(key, longs);
+            return;
+        }
+        ByteBuffer buffer = allocate(ELEMENTS_DOUBLE, size * 8);
+        buffer.asDoubleBuffer().put(values);
+        dataMap.putByteArray(key, buffer.array());
+    }
+
+    /**
+     * Decodes a byte[] written by {@link #put}.
+     */
+    public static WritableArray decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not an encoded array");
+        }
+        byte elements = data[2];
+        int length = data.length - WearConnectivityFrames.HEADER_SIZE;
+        WritableArray array;
+        switch (elements) {
+            case ELEMENTS_DOUBLE:
+                if (length % 8 != 0) {
+                    throw new IllegalArgumentException("Truncated double array");
+                }
+                double[] values = new double[length / 8];
+                ByteBuffer.wrap(data, WearConnectivityFrames.HEADER_SIZE, length).asDoubleBuffer().get(values);
+                array = Arguments.createArray();
+                for (double value : values) {
+                    array.pushDouble(value);
+                }
+                return array;
+            case ELEMENTS_BOOLEAN:
+                array = Arguments.createArray();
+                for (int i = WearConnectivityFrames.HEADER_SIZE; i < data.length; i++) {
+                    array.pushBoolean(data[i] != 0);
+                }
+                return array;
+            case ELEMENTS_TAGGED:
+                WearConnectivityCodec.Reader reader = new WearConnectivityCodec.Reader(data, WearConnectivityFrames.HEADER_SIZE);
+                if (reader.readByte() != WearConnectivityCodec.TAG_ARRAY) {
+                    throw new IllegalArgumentException("Encoded array is not an array");
+                }
+                WritableArray tagged = WearConnectivityCodec.readArray(reader);
+                reader.checkEnd();
+                return tagged;
+            default:
+                throw new IllegalArgumentException("Unsupported array elements: " + elements);
+        }
+    }
+
+    private static ByteBuffer allocate(byte elements, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(WearConnectivityFrames.HEADER_SIZE + length);
+        buffer.put(WearConnectivityFrames.MAGIC).put(WearConnectivityFrames.TYPE_ARRAY).put(elements);
+        return buffer;
+    }
+}
@@ -0,0 +1,296 @@
+package com.wearconnectivity;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Resumable file transfer protocol used on the file channel.
+ *
+ * The sender writes [u8 version][UTF transferId][i64 fileSize][i32 chunkSize]. The receiver answers
+ * with the bitmap of the chunks it already has, persisted in a manifest next to the partial file,
+ * and the sender only writes the missing chunks as [i32 index][i32 length][i64 crc32][bytes],
+ * followed by {@link #END_OF_ROUND}. Chunks failing the CRC32 check are dropped and requested
+ * again in the next round, until the bitmap is complete.
+ */
+public final class WearConnectivityChunkedTransfer {
+    public static final int VERSION = 1;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final String TRANSFERS_DIR = ".wear-connectivity-transfers";
+    static final int END_OF_ROUND = -1;
+    static final int MAX_ROUNDS = 3;
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+    // received bytes between two syncs of the partial file and the manifest
+    private static final long SYNC_INTERVAL_BYTES = 1024 * 1024;
+    private static final long STALE_TRANSFER_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final Pattern TRANSFER_ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private WearConnectivityChunkedTransfer() {
+    }
+
+    public interface ProgressListener {
+        void onProgress(long completedBytes, long totalBytes);
+    }
+
+    /**
+     * The transfer id only depends on the file, so sending the same file again resumes the transfer.
+     */
+    public static String getTransferId(File file) {
+        String key = file.getName() + ":" + file.length() + ":" + file.lastModified();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    static int getChunkCount(long fileSize, int chunkSize) {
+        return (int) ((fileSize + chunkSize - 1) / chunkSize);
+    }
+
+    public static void send(File file, int chunkSize, DataInputStream in, DataOutputStream out) throws IOException {
+        long fileSize = file.length();
+        int chunkCount = getChunkCount(fileSize, chunkSize);
+        out.writeByte(VERSION);
+        out.writeUTF(getTransferId(file));
+        out.writeLong(fileSize);
+        out.writeInt(chunkSize);
+        out.flush();
+
+        byte[] buffer = new byte[chunkSize];
+        CRC32 crc = new CRC32();
+        try (RandomAccessFile source = new RandomAccessFile(file, "r")) {
+            for (int round = 0; ; round++) {
+                BitSet received = readBitmap(in, chunkCount);
+                int missing = chunkCount - received.cardinality();
+                if (missing == 0) {
+                    return;
+                }
+                if (round == MAX_ROUNDS) {
+                    throw new IOException("Transfer incomplete after " + MAX_ROUNDS + " rounds, " + missing + " chunks missing");
+                }
+                for (int index = received.nextClearBit(0); index < chunkCount; index = received.nextClearBit(index + 1)) {
+                    long offset = (long) index * chunkSize;
+                    int length = (int) Math.min(chunkSize, fileSize - offset);
+                    source.seek(offset);
+                    source.readFully(buffer, 0, length);
+                    crc.reset();
+                    crc.update(buffer, 0, length);
+                    out.writeInt(index);
+                    out.writeInt(length);
+                    out.writeLong(crc.getValue());
+                    out.write(buffer, 0, length);
+                }
+                out.writeInt(END_OF_ROUND);
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Receives a transfer into destination, resuming from the manifest stored in transfersDir.
+     */
+    public static void receive(File transfersDir, File destination, DataInputStream in, DataOutputStream out,
+                               ProgressListener listener) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported transfer version: " + version);
+        }
+        String transferId = in.readUTF();
+        if (!TRANSFER_ID_PATTERN.matcher(transferId).matches()) {
+            throw new IOException("Invalid transfer id: " + transferId);
+        }
+        long fileSize = in.readLong();
+        int chunkSize = in.readInt();
+        if (fileSize < 0 || chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IOException("Invalid transfer header, size: " + fileSize + ", chunkSize: " + chunkSize);
+        }
+
+        try (Manifest manifest = Manifest.open(transfersDir, transferId, fileSize, chunkSize);
+             RandomAccessFile part = new RandomAccessFile(manifest.partFile, "rw")) {
+            byte[] buffer = new byte[chunkSize];
+            CRC32 crc = new CRC32();
+            listener.onProgress(manifest.receivedBytes, fileSize);
+            while (true) {
+                writeBitmap(out, manifest.received, manifest.chunkCount);
+                out.flush();
+                if (manifest.isComplete()) {
+                    break;
+                }
+                int index;
+                while ((index = in.readInt()) != END_OF_ROUND) {
+                    int length = in.readInt();
+                    long checksum = in.readLong();
+                    if (index < 0 || index >= manifest.chunkCount || length != manifest.getChunkLength(index)) {
+                        throw new IOException("Invalid chunk " + index + " of length " + length);
+                    }
+                    in.readFully(buffer, 0, length);
+                    crc.reset();
+                    crc.update(buffer, 0, length);
+                    if (crc.getValue() != checksum) {
+                        // not marked as received, the sender sends it again in the next round
+                        continue;
+                    }
+                    part.seek((long) index * chunkSize);
+                    part.write(buffer, 0, length);
+                    manifest.markReceived(index);
+                    if (manifest.unsyncedBytes >= SYNC_INTERVAL_BYTES) {
+                        manifest.sync(part);
+                    }
+                    listener.onProgress(manifest.receivedBytes, fileSize);
+                }
+                manifest.sync(part);
+            }
+        }
+        Manifest.complete(transfersDir, transferId, destination);
+    }
+
+    /**
+     * Deletes the partial transfers that were not resumed for a week.
+     */
+    public static void pruneStaleTransfers(File transfersDir) {
+        File[] files = transfersDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > STALE_TRANSFER_MS) {
+                file.delete();
+            }
+        }
+    }
+
+    private static void writeBitmap(DataOutputStream out, BitSet bits, int chunkCount) throws IOException {
+        out.writeInt(chunkCount);
+        out.write(toBytes(bits, chunkCount));
+    }
+
+    private static BitSet readBitmap(DataInputStream in, int chunkCount) throws IOException {
+        int count = in.readInt();
+        if (count != chunkCount) {
+            throw new IOException("Unexpected chunk count " + count + ", expected " + chunkCount);
+        }
+        byte[] bytes = new byte[(chunkCount + 7) / 8];
+        in.readFully(bytes);
+        return BitSet.valueOf(bytes);
+    }
+
+    private static byte[] toBytes(BitSet bits, int chunkCount) {
+        byte[] bytes = new byte[(chunkCount + 7) / 8];
+        byte[] set = bits.toByteArray();
+        System.arraycopy(set, 0, bytes, 0, Math.min(set.length, bytes.length));
+        return bytes;
+    }
+
+    /**
+     * Receiver-side state of a transfer: [i32 version][i64 fileSize][i32 chunkSize] followed by the chunks bitmap.
+     * Received chunks only flip their bit of the bitmap in place once the partial file is synced,
+     * so after a crash the manifest never lists a chunk whose data did not reach the disk.
+     */
+    static final class Manifest implements Closeable {
+        private static final int HEADER_SIZE = 4 + 8 + 4;
+        final File partFile;
+        final long fileSize;
+        final int chunkSize;
+        final int chunkCount;
+        final BitSet received;
+        long receivedBytes;
+        long unsyncedBytes;
+        // received chunks not written to the manifest yet
+        private final BitSet unsynced = new BitSet();
+        private final RandomAccessFile file;
+
+        private Manifest(File manifestFile, File partFile, long fileSize, int chunkSize) throws IOException {
+            this.partFile = partFile;
+            this.fileSize = fileSize;
+            this.chunkSize = chunkSize;
+            this.chunkCount = getChunkCount(fileSize, chunkSize);
+            this.file = new RandomAccessFile(manifestFile, "rw");
+            byte[] bitmap = new byte[(chunkCount + 7) / 8];
+            if (file.length() == HEADER_SIZE + bitmap.length && partFile.exists()
+                    && file.readInt() == VERSION && file.readLong() == fileSize && file.readInt() == chunkSize) {
+                file.readFully(bitmap);
+            } else {
+                file.setLength(0);
+                file.writeInt(VERSION);
+                file.writeLong(fileSize);
+                file.writeInt(chunkSize);
+                file.write(bitmap);
+                new RandomAccessFile(partFile, "rw").close();
+            }
+            this.received = BitSet.valueOf(bitmap);
+            for (int index = received.nextSetBit(0); index >= 0 && index < chunkCount; index = received.nextSetBit(index + 1)) {
+                receivedBytes += getChunkLength(index);
+            }
+        }
+
+        static Manifest open(File transfersDir, String transferId, long fileSize, int chunkSize) throws IOException {
+            if (!transfersDir.isDirectory() && !transfersDir.mkdirs()) {
+                throw new IOException("Cannot create " + transfersDir);
+            }
+            return new Manifest(new File(transfersDir, transferId + ".manifest"),
+                    new File(transfersDir, transferId + ".part"), fileSize, chunkSize);
+        }
+
+        static void complete(File transfersDir, String transferId, File destination) throws IOException {
+            File partFile = new File(transfersDir, transferId + ".part");
+            if (destination.exists() && !destination.delete()) {
+                throw new IOException("Cannot replace " + destination);
+            }
+            if (!partFile.renameTo(destination)) {
+                throw new IOException("Cannot move " + partFile + " to " + destination);
+            }
+            new File(transfersDir, transferId + ".manifest").delete();
+        }
+
+        int getChunkLength(int index) {
+            return (int) Math.min(chunkSize, fileSize - (long) index * chunkSize);
+        }
+
+        boolean isComplete() {
+            return received.cardinality() == chunkCount;
+        }
+
+        void markReceived(int index) throws IOException {
+            if (received.get(index)) {
+                return;
+            }
+            received.set(index);
+            receivedBytes += getChunkLength(index);
+            unsyncedBytes += getChunkLength(index);
+            unsynced.set(index);
+        }
+
+        /**
+         * Syncs the partial file, then writes the bits of the chunks received since the last sync.
+         */
+        void sync(RandomAccessFile part) throws IOException {
+            if (unsynced.isEmpty()) {
+                return;
+            }
+            part.getFD().sync();
+            int lastByteIndex = -1;
+            for (int index = unsynced.nextSetBit(0); index >= 0; index = unsynced.nextSetBit(index + 1)) {
+                int byteIndex = index / 8;
+                if (byteIndex == lastByteIndex) {
+                    continue;
+                }
+                lastByteIndex = byteIndex;
+                file.seek(HEADER_SIZE + byteIndex);
+                file.write(toBytes(received.get(byteIndex * 8, byteIndex * 8 + 8), 8));
+            }
+            unsynced.clear();
+            unsyncedBytes = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact, self-describing binary encoding of message payloads.
+ * A payload is a {@link WearConnectivityFrames#TYPE_MAP} frame followed by the codec version
+ * and the encoded map. Every value starts with a one byte tag, integers are zigzag varints,
+ * other numbers are 8 byte doubles and strings, arrays and maps are prefixed by a varint length.
+ */
+public final class WearConnectivityCodec {
+    public static final byte VERSION = 1;
+    static final byte TAG_NULL = 0;
+    static final byte TAG_FALSE = 1;
+    static final byte TAG_TRUE = 2;
+    static final byte TAG_INT = 3;
+    static final byte TAG_DOUBLE = 4;
+    static final byte TAG_STRING = 5;
+    static final byte TAG_ARRAY = 6;
+    static final byte TAG_MAP = 7;
+    private static final double MAX_SAFE_INTEGER = 9007199254740991d;
+
+    private WearConnectivityCodec() {
+    }
+
+    public static boolean isEncoded(byte[] data) {
+        return WearConnectivityFrames.isFrame(data, WearConnectivityFrames.TYPE_MAP);
+    }
+
+    public static byte[] encode(ReadableMap map) {
+        Writer writer = new Writer(256);
+        writer.writeByte(WearConnectivityFrames.MAGIC);
+        writer.writeByte(WearConnectivityFrames.TYPE_MAP);
+        writer.writeByte((byte) 0);
+        writer.writeByte(VERSION);
+        writeMap(writer, map);
+        return writer.toByteArray();
+    }
+
+    public static WritableMap decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not a binary payload");
+        }
+        Reader reader = new Reader(data, WearConnectivityFrames.HEADER_SIZE);
+        byte version = reader.readByte();
+        if (version > VERSION) {
+            throw new IllegalArgumentException("Unsupported codec version: " + version);
+        }
+        if (reader.readByte() != TAG_MAP) {
+            throw new IllegalArgumentException("Binary payload is not a map");
+        }
+        WritableMap map = readMap(reader);
+        reader.checkEnd();
+        return map;
+    }
+
+    private static void writeMap(Writer writer, ReadableMap map) {
+        writer.writeByte(TAG_MAP);
+        int sizeOffset = writer.reserveVarInt();
+        int size = 0;
+        ReadableMapKeySetIterator iterator = map.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            writer.writeString(key);
+            switch (map.getType(key)) {
+                case Null:
+                    writer.writeByte(TAG_NULL);
+                    break;
+                case Boolean:
+                    writer.writeByte(map.getBoolean(key) ? TAG_TRUE : TAG_FALSE);
+                    break;
+                case Number:
+                    writeNumber(writer, map.getDouble(key));
+                    break;
+                case String:
+                    writer.writeByte(TAG_STRING);
+                    writer.writeString(map.getString(key));
+                    break;
+                case Map:
+                    writeMap(writer, map.getMap(key));
+                    break;
+                case Array:
+                    writeArray(writer, map.getArray(key));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported type: " + map.getType(key));
+            }
+            size++;
+        }
+        writer.writeReservedVarInt(sizeOffset, size);
+    }
+
+    static void writeArray(Writer writer, ReadableArray array) {
+        int size = array.size();
+        writer.writeByte(TAG_ARRAY);
+        writer.writeVarInt(size);
+        for (int i = 0; i < size; i++) {
+            switch (array.getType(i)) {
+                case Null:
+                    writer.writeByte(TAG_NULL);
+                    break;
+                case Boolean:
+                    writer.writeByte(array.getBoolean(i) ? TAG_TRUE : TAG_FALSE);
+                    break;
+                case Number:
+                    writeNumber(writer, array.getDouble(i));
+                    break;
+                case String:
+                    writer.writeByte(TAG_STRING);
+                    writer.writeString(array.getString(i));
+                    break;
+                case Map:
+                    writeMap(writer, array.getMap(i));
+                    break;
+                case Array:
+                    writeArray(writer, array.getArray(i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported type: " + array.getType(i));
+            }
+        }
+    }
+
+    private static void writeNumber(Writer writer, double value) {
+        if (value == Math.rint(value) && Math.abs(value) <= MAX_SAFE_INTEGER
+                && !(value == 0 && Double.doubleToRawLongBits(value) != 0)) {
+            writer.writeByte(TAG_INT);
+            writer.writeVarLong(zigzag((long) value));
+        } else {
+            writer.writeByte(TAG_DOUBLE);
+            writer.writeLong(Double.doubleToRawLongBits(value));
+        }
+    }
+
+    private static WritableMap readMap(Reader reader) {
+        WritableMap map = Arguments.createMap();
+        int size = reader.readVarInt();
+        for (int i = 0; i < size; i++) {
+            String key = reader.readString();
+            byte tag = reader.readByte();
+            switch (tag) {
+                case TAG_NULL:
+                    map.putNull(key);
+                    break;
+                case TAG_FALSE:
+                    map.putBoolean(key, false);
+                    break;
+                case TAG_TRUE:
+                    map.putBoolean(key, true);
+                    break;
+                case TAG_INT:
+                    long value = unzigzag(reader.readVarLong());
+                    if (value == (int) value) {
+                        map.putInt(key, (int) value);
+                    } else {
+                        map.putDouble(key, value);
+                    }
+                    break;
+                case TAG_DOUBLE:
+                    map.putDouble(key, Double.longBitsToDouble(reader.readLong()));
+                    break;
+                case TAG_STRING:
+                    map.putString(key, reader.readString());
+                    break;
+                case TAG_ARRAY:
+                    map.putArray(key, readArray(reader));
+                    break;
+                case TAG_MAP:
+                    map.putMap(key, readMap(reader));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported tag: " + tag);
+            }
+        }
+        return map;
+    }
+
+    static WritableArray readArray(Reader reader) {
+        WritableArray array = Arguments.createArray();
+        int size = reader.readVarInt();
+        for (int i = 0; i < size; i++) {
+            byte tag = reader.readByte();
+            switch (tag) {
+                case TAG_NULL:
+                    array.pushNull();
+                    break;
+                case TAG_FALSE:
+                    array.pushBoolean(false);
+                    break;
+                case TAG_TRUE:
+                    array.pushBoolean(true);
+                    break;
+                case TAG_INT:
+                    long value = unzigzag(reader.readVarLong());
+                    if (value == (int) value) {
+                        array.pushInt((int) value);
+                    } else {
+                        array.pushDouble(value);
+                    }
+                    break;
+                case TAG_DOUBLE:
+                    array.pushDouble(Double.longBitsToDouble(reader.readLong()));
+                    break;
+                case TAG_STRING:
+                    array.pushString(reader.readString());
+                    break;
+                case TAG_ARRAY:
+                    array.pushArray(readArray(reader));
+                    break;
+                case TAG_MAP:
+                    array.pushMap(readMap(reader));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported tag: " + tag);
+            }
+        }
+        return array;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable byte buffer, avoids the synchronization of ByteArrayOutputStream.
+     */
+    static final class Writer {
+        private static final int RESERVED_VARINT_SIZE = 5;
+        private byte[] buffer;
+        private int position;
+
+        Writer(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[position++] = value;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        /**
+         * Reserves a fixed width varint, used for map sizes that are only known after iterating the keys.
+         */
+        int reserveVarInt() {
+            ensureCapacity(RESERVED_VARINT_SIZE);
+            int offset = position;
+            position += RESERVED_VARINT_SIZE;
+            return offset;
+        }
+
+        void writeReservedVarInt(int offset, int value) {
+            for (int i = 0; i < RESERVED_VARINT_SIZE - 1; i++) {
+                buffer[offset + i] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[offset + RESERVED_VARINT_SIZE - 1] = (byte) (value & 0x7F);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+
+    static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer, int offset) {
+            this.buffer = buffer;
+            this.position = offset;
+        }
+
+        byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated binary payload");
+            }
+            return buffer[position++];
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        int readVarInt() {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid length: " + value);
+            }
+            return (int) value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        void checkEnd() {
+            if (position != buffer.length) {
+                throw new IllegalArgumentException((buffer.length - position) + " unexpected bytes after the binary payload");
+            }
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("Truncated binary payload");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
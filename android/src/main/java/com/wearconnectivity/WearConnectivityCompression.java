@@ -0,0 +1,170 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Opt-in compression of message payloads and DataItems.
+ * A compressed payload is a {@link WearConnectivityFrames#TYPE_COMPRESSED} frame,
+ * [header][u32 originalLength][compressed bytes], the flags byte of the header selects the algorithm,
+ * so the receiver decompresses it whatever the sender configuration.
+ */
+public class WearConnectivityCompression {
+    public static final String OPTION_ENABLED = "enabled";
+    public static final String OPTION_MIN_SIZE_BYTES = "minSizeBytes";
+    public static final String OPTION_LEVEL = "level";
+    public static final String OPTION_ALGORITHM = "algorithm";
+    public static final String ALGORITHM_DEFLATE = "deflate";
+    public static final int DEFAULT_MIN_SIZE_BYTES = 256;
+    private static final int LENGTH_SIZE = 4;
+    // payloads larger than the DataItem limit are rejected, so a small frame can not inflate to an unbounded buffer
+    private static final int MAX_ORIGINAL_LENGTH = 16 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private volatile boolean enabled;
+    private volatile int minSizeBytes = DEFAULT_MIN_SIZE_BYTES;
+    private volatile int level = Deflater.DEFAULT_COMPRESSION;
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private final AtomicLong decompressed = new AtomicLong();
+    private final AtomicLong decompressNanos = new AtomicLong();
+
+    public void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        if (options.hasKey(OPTION_ALGORITHM) && !ALGORITHM_DEFLATE.equals(options.getString(OPTION_ALGORITHM))) {
+            throw new IllegalArgumentException("Unsupported algorithm: " + options.getString(OPTION_ALGORITHM));
+        }
+        if (options.hasKey(OPTION_LEVEL)) {
+            int newLevel = options.getInt(OPTION_LEVEL);
+            if (newLevel < Deflater.DEFAULT_COMPRESSION || newLevel > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("Unsupported level: " + newLevel);
+            }
+            level = newLevel;
+        }
+        if (options.hasKey(OPTION_MIN_SIZE_BYTES)) {
+            minSizeBytes = Math.max(0, options.getInt(OPTION_MIN_SIZE_BYTES));
+        }
+        if (options.hasKey(OPTION_ENABLED)) {
+            enabled = options.getBoolean(OPTION_ENABLED);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean isCompressed(byte[] data) {
+        return WearConnectivityFrames.isFrame(data, WearConnectivityFrames.TYPE_COMPRESSED);
+    }
+
+    /**
+     * Returns the compressed frame, or data itself when compression is disabled,
+     * data is smaller than minSizeBytes or does not shrink.
+     */
+    public byte[] compress(byte[] data) {
+        if (!enabled || data.length < minSizeBytes || isCompressed(data)) {
+            return data;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = new Deflater(level);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + WearConnectivityFrames.HEADER_SIZE + LENGTH_SIZE);
+        try {
+            out.write(WearConnectivityFrames.MAGIC);
+            out.write(WearConnectivityFrames.TYPE_COMPRESSED);
+            out.write(WearConnectivityFrames.FLAG_DEFLATE);
+            out.write(ByteBuffer.allocate(LENGTH_SIZE).putInt(data.length).array(), 0, LENGTH_SIZE);
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished() && out.size() < data.length) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+            compressNanos.addAndGet(System.nanoTime() - start);
+        }
+        if (out.size() >= data.length) {
+            skipped.incrementAndGet();
+            return data;
+        }
+        compressed.incrementAndGet();
+        originalBytes.addAndGet(data.length);
+        compressedBytes.addAndGet(out.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the original payload of a compressed frame, or data itself when it is not compressed.
+     */
+    public byte[] decompress(byte[] data) {
+        if (!isCompressed(data)) {
+            return data;
+        }
+        if (data[2] != WearConnectivityFrames.FLAG_DEFLATE) {
+            throw new IllegalArgumentException("Unsupported compression flags: " + data[2]);
+        }
+        int offset = WearConnectivityFrames.HEADER_SIZE + LENGTH_SIZE;
+        if (data.length < offset) {
+            throw new IllegalArgumentException("Truncated compressed frame");
+        }
+        int originalLength = ByteBuffer.wrap(data, WearConnectivityFrames.HEADER_SIZE, LENGTH_SIZE).getInt();
+        if (originalLength < 0 || originalLength > MAX_ORIGINAL_LENGTH) {
+            throw new IllegalArgumentException("Invalid original length: " + originalLength);
+        }
+        long start = System.nanoTime();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            byte[] original = new byte[originalLength];
+            int length = 0;
+            while (length < originalLength && !inflater.finished()) {
+                int inflated = inflater.inflate(original, length, originalLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != originalLength || !inflater.finished()) {
+                throw new IllegalArgumentException("Corrupted compressed frame");
+            }
+            decompressed.incrementAndGet();
+            return original;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupted compressed frame", e);
+        } finally {
+            inflater.end();
+            decompressNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the compression counters, ratio is compressedBytes / originalBytes of the compressed payloads.
+     */
+    public WritableMap getStats() {
+        long original = originalBytes.get();
+        WritableMap stats = Arguments.createMap();
+        stats.putBoolean("enabled", enabled);
+        stats.putDouble("compressed", compressed.get());
+        stats.putDouble("skipped", skipped.get());
+        stats.putDouble("originalBytes", original);
+        stats.putDouble("compressedBytes", compressedBytes.get());
+        stats.putDouble("ratio", original > 0 ? (double) compressedBytes.get() / original : 1);
+        stats.putDouble("compressTimeMs", compressNanos.get() / 1e6);
+        stats.putDouble("decompressed", decompressed.get());
+        stats.putDouble("decompressTimeMs", decompressNanos.get() / 1e6);
+        return stats;
+    }
+}
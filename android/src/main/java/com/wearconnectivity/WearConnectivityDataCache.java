@@ -0,0 +1,176 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.wearable.DataMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of the received and sent DataItems, indexed by path.
+ * The cache is bounded by maxEntries and by maxBytes, the serialized size of the cached DataMaps.
+ * Delta sync patches are cached next to their base item and merged when read.
+ */
+public class WearConnectivityDataCache {
+    public static final String OPTION_MAX_ENTRIES = "maxEntries";
+    public static final String OPTION_MAX_BYTES = "maxBytes";
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    private static class CacheEntry {
+        final DataMap dataMap;
+        final int size;
+
+        CacheEntry(DataMap dataMap, int size) {
+            this.dataMap = dataMap;
+            this.size = size;
+        }
+    }
+
+    // access order, the first entry is the least recently used
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // delta sync patches, keyed by the path of their base item and evicted with it
+    private final Map<String, CacheEntry> patches = new HashMap<>();
+    private int cachedBytes;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private int maxBytes = DEFAULT_MAX_BYTES;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public synchronized void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        if (options.hasKey(OPTION_MAX_ENTRIES)) {
+            maxEntries = Math.max(0, options.getInt(OPTION_MAX_ENTRIES));
+        }
+        if (options.hasKey(OPTION_MAX_BYTES)) {
+            maxBytes = Math.max(0, options.getInt(OPTION_MAX_BYTES));
+        }
+        evict();
+    }
+
+    public synchronized void put(String path, DataMap dataMap) {
+        CacheEntry entry = new CacheEntry(dataMap, dataMap.toByteArray().length);
+        remove(path);
+        if (WearConnectivityDeltaSync.isPatchPath(path)) {
+            patches.put(getBasePath(path), entry);
+        } else {
+            entries.put(path, entry);
+        }
+        cachedBytes += entry.size;
+        evict();
+    }
+
+    /**
+     * Caches a DataMap read at startup, unless a newer one was received in the meantime.
+     */
+    public synchronized void warm(String path, DataMap dataMap) {
+        boolean isCached = WearConnectivityDeltaSync.isPatchPath(path)
+                ? patches.containsKey(getBasePath(path)) : entries.containsKey(path);
+        if (!isCached) {
+            put(path, dataMap);
+        }
+    }
+
+    public synchronized void remove(String path) {
+        CacheEntry entry = WearConnectivityDeltaSync.isPatchPath(path)
+                ? patches.remove(getBasePath(path)) : entries.remove(path);
+        if (entry != null) {
+            cachedBytes -= entry.size;
+        }
+    }
+
+    /**
+     * Returns the cached data of path, with its delta sync patch applied, or null when it is not cached.
+     */
+    public synchronized WritableMap get(String path) {
+        CacheEntry entry = entries.get(path);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return WearConnectivityDataMaps.toWritableMap(merge(path, entry));
+    }
+
+    /**
+     * Same as {@link #get} without counting a hit or a miss, nor changing the LRU order.
+     */
+    public synchronized WritableMap peek(String path) {
+        CacheEntry entry = entries.get(path);
+        if (entry == null) {
+            return null;
+        }
+        return WearConnectivityDataMaps.toWritableMap(merge(path, entry));
+    }
+
+    /**
+     * Returns the cached items whose path starts with prefix, as { path, data } maps.
+     */
+    public synchronized WritableArray getAll(String prefix) {
+        List<String> paths = new ArrayList<>();
+        for (String path : entries.keySet()) {
+            if (path.startsWith(prefix)) {
+                paths.add(path);
+            }
+        }
+        WritableArray items = Arguments.createArray();
+        for (String path : paths) {
+            WritableMap item = Arguments.createMap();
+            item.putString("path", path);
+            item.putMap("data", WearConnectivityDataMaps.toWritableMap(merge(path, entries.get(path))));
+            items.pushMap(item);
+        }
+        hits += paths.size();
+        return items;
+    }
+
+    public synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putDouble("evictions", evictions);
+        stats.putDouble("entries", entries.size());
+        stats.putDouble("bytes", cachedBytes);
+        return stats;
+    }
+
+    private DataMap merge(String path, CacheEntry entry) {
+        CacheEntry patch = patches.get(path);
+        return WearConnectivityDeltaSync.merge(entry.dataMap, patch != null ? patch.dataMap : null);
+    }
+
+    private static String getBasePath(String patchPath) {
+        return patchPath.substring(0, patchPath.length() - WearConnectivityDeltaSync.PATCH_SUFFIX.length());
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> entry = iterator.next();
+            cachedBytes -= entry.getValue().size;
+            iterator.remove();
+            CacheEntry patch = patches.remove(entry.getKey());
+            if (patch != null) {
+                cachedBytes -= patch.size;
+            }
+            evictions++;
+        }
+        if (cachedBytes > maxBytes) {
+            // only patches of items that are not cached are left
+            for (CacheEntry patch : patches.values()) {
+                cachedBytes -= patch.size;
+            }
+            patches.clear();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.wearconnectivity;
 
+import android.net.Uri;
 import android.webkit.MimeTypeMap;
 
 import com.facebook.common.logging.FLog;
@@ -8,26 +9,41 @@ import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
-import com.facebook.react.bridge.ReadableMapKeySetIterator;
-import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.ChannelClient;
 import com.google.android.gms.wearable.DataClient;
 import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 import com.facebook.react.bridge.ReactApplicationContext;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
@@ -38,222 +54,659 @@ import com.google.android.gms.wearable.DataMapItem;
 
 public class WearConnectivityDataClient implements DataClient.OnDataChangedListener, LifecycleEventListener {
     public static final String OPTION_URGENT = "urgent";
+    public static final String OPTION_DELTA = "delta";
+    public static final String OPTION_CHANNEL_THRESHOLD_BYTES = "channelThresholdBytes";
+    public static final long DEFAULT_CHANNEL_THRESHOLD_BYTES = 1024 * 1024;
+    public static final String OPTION_PROGRESS_INTERVAL_MS = "progressIntervalMs";
+    public static final String OPTION_PROGRESS_STEP_BYTES = "progressStepBytes";
+    public static final long DEFAULT_PROGRESS_INTERVAL_MS = 250;
+    public static final String OPTION_MAX_CONCURRENT_TRANSFERS = "maxConcurrentTransfers";
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSFERS = 2;
+    public static final String FILE_CHANNEL_PATH = "/file_transfer_channel";
+    public static final String COMPRESSED_DATA_KEY = "wearConnectivityCompressed";
+    public static final String FILE_TRANSFER_PATH = "/file_transfer";
+    public static final String DATA_CHANGED_EVENT = "DataChangedEvent";
     private static final String TAG = "WearConnectivityDataClient";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_STREAM_ATTEMPTS = 3;
+    private static final long STREAM_RETRY_DELAY_MS = 2000;
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
     private DataClient dataClient;
+    private final ChannelClient channelClient;
+    // incoming transfers
+    private final ThreadPoolExecutor fileExecutor = new ThreadPoolExecutor(
+            DEFAULT_MAX_CONCURRENT_TRANSFERS, DEFAULT_MAX_CONCURRENT_TRANSFERS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    // outgoing streams, they block on the channel and retries and must not hold up the incoming transfers
+    private final ThreadPoolExecutor sendExecutor = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private final ChannelClient.ChannelCallback channelCallback = new ChannelClient.ChannelCallback() {
+        @Override
+        public void onChannelOpened(@NonNull ChannelClient.Channel channel) {
+            if (channel.getPath().startsWith(FILE_CHANNEL_PATH + "/")) {
+                receiveChannelFile(channel);
+            }
+        }
+    };
     private static ReactApplicationContext reactContext;
-    private String fileName = "unknown_file";
-    private long startTime;
-    private int totalBytes;
+    private volatile long channelThresholdBytes = DEFAULT_CHANNEL_THRESHOLD_BYTES;
+    private volatile long progressIntervalMs = DEFAULT_PROGRESS_INTERVAL_MS;
+    private volatile long progressStepBytes;
+    private final Map<String, WearConnectivityFileTransfer> activeTransfers = new ConcurrentHashMap<>();
+    private final WearConnectivityCompression compression = new WearConnectivityCompression();
+    private final WearConnectivityDeltaSync deltaSync = new WearConnectivityDeltaSync();
+    // last delta write of every path, the next one waits for it
+    private final Map<String, Task<Void>> deltaWrites = new HashMap<>();
+    private final WearConnectivityDataCache dataCache = new WearConnectivityDataCache();
+    // subscribed path prefixes and their number of subscribers
+    private final Map<String, Integer> dataSubscriptions = new ConcurrentHashMap<>();
+    // id of this device, the DataClient listener also receives the items it writes
+    private volatile String localNodeId;
 
     public WearConnectivityDataClient(ReactApplicationContext context) {
         dataClient = Wearable.getDataClient(context);
+        channelClient = Wearable.getChannelClient(context);
+        fileExecutor.allowCoreThreadTimeOut(true);
+        sendExecutor.allowCoreThreadTimeOut(true);
         reactContext = context;
+        Wearable.getNodeClient(context).getLocalNode()
+                .addOnSuccessListener(node -> localNodeId = node.getId())
+                .addOnFailureListener(e -> FLog.w(TAG, "getLocalNode failed: " + e));
         dataClient.addListener(this);
+        channelClient.registerChannelCallback(channelCallback);
         context.addLifecycleEventListener(this);
+        fileExecutor.execute(() -> WearConnectivityChunkedTransfer.pruneStaleTransfers(getTransfersDir()));
+        warmDataCache();
     }
 
     public void sendData(String path, ReadableMap data, ReadableMap options, Promise promise) {
+        boolean delta = options.hasKey(OPTION_DELTA) && options.getBoolean(OPTION_DELTA);
+        if (delta) {
+            sendDataDelta(path, data, options, promise);
+            return;
+        }
+        deltaSync.reset(path);
         PutDataMapRequest dataMapRequest = PutDataMapRequest.create(path);
         WearConnectivityDataClient.putAll(dataMapRequest.getDataMap(), data);
+        if (compression.isEnabled()) {
+            compressDataMap(dataMapRequest.getDataMap());
+        }
         PutDataRequest request = dataMapRequest.asPutDataRequest();
         boolean urgent = options.hasKey(OPTION_URGENT) && options.getBoolean(OPTION_URGENT);
         if (urgent) {
             request.setUrgent();
         }
-        Task<DataItem> task = dataClient.putDataItem(request);
+        Task<DataItem> task = WearConnectivityMetrics.getInstance().trackSend(path, getSize(request), putDataItem(path, request, urgent));
         task.addOnSuccessListener(dataItem -> {
+            dataCache.put(path, getDataMap(dataItem));
             promise.resolve("Data sent successfully via DataClient.");
         }).addOnFailureListener(e -> {
             promise.reject("E_SEND_FAILED", "Data sending failed: " + e);
         });
     }
 
-    public static void putAll(DataMap dataMap, ReadableMap data) {
-        if (data == null) {
-            return;
+    /**
+     * Writes only what changed since the last delta sendData on the path: nothing when the data is unchanged,
+     * a patch item when few keys changed, the whole item otherwise.
+     * The delta writes of a path run one after the other, each one is planned once the previous one was written,
+     * so a patch is never diffed against a version the receiver does not have yet.
+     */
+    private void sendDataDelta(String path, ReadableMap data, ReadableMap options, Promise promise) {
+        DataMap next = new DataMap();
+        WearConnectivityDataClient.putAll(next, data);
+        boolean urgent = options.hasKey(OPTION_URGENT) && options.getBoolean(OPTION_URGENT);
+        synchronized (deltaWrites) {
+            Task<Void> previous = deltaWrites.get(path);
+            Task<Void> write = previous == null ? writeDelta(path, next, urgent, promise)
+                    : previous.continueWithTask(DIRECT_EXECUTOR, task -> writeDelta(path, next, urgent, promise));
+            deltaWrites.put(path, write);
+            write.addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+                synchronized (deltaWrites) {
+                    if (deltaWrites.get(path) == write) {
+                        deltaWrites.remove(path);
+                    }
+                }
+            });
         }
+    }
 
-        ReadableMapKeySetIterator iterator = data.keySetIterator();
-        while (iterator.hasNextKey()) {
-            String key = iterator.nextKey();
-            switch (data.getType(key)) {
-            case Null:
-                // TODO test
-                break;
-            case Boolean:
-                dataMap.putBoolean(key, data.getBoolean(key));
-                break;
-            case Number:
-                dataMap.putDouble(key, data.getDouble(key));
-                break;
-            case String:
-                dataMap.putString(key, data.getString(key));
-                break;
-            case Map:
-                DataMap nestedDataMap = new DataMap();
-                putAll(nestedDataMap, data.getMap(key));
-                dataMap.putDataMap(key, nestedDataMap);
-                break;
-            case Array:
-                putAll(dataMap, data.getArray(key), key);
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported type: " + data.getType(key));
+    /**
+     * Plans and writes a delta item, the returned task completes once the plan was committed or the write failed.
+     */
+    private Task<Void> writeDelta(String path, DataMap next, boolean urgent, Promise promise) {
+        WearConnectivityDeltaSync.Plan plan = deltaSync.plan(path, next);
+        if (plan.type == WearConnectivityDeltaSync.Plan.SKIP) {
+            promise.resolve("Data unchanged, nothing sent.");
+            return Tasks.forResult(null);
+        }
+        boolean isPatch = plan.type == WearConnectivityDeltaSync.Plan.PATCH;
+        String itemPath = isPatch ? path + WearConnectivityDeltaSync.PATCH_SUFFIX : path;
+        PutDataMapRequest dataMapRequest = PutDataMapRequest.create(itemPath);
+        dataMapRequest.getDataMap().putAll(plan.dataMap);
+        if (compression.isEnabled()) {
+            compressDataMap(dataMapRequest.getDataMap());
+        }
+        PutDataRequest request = dataMapRequest.asPutDataRequest();
+        if (urgent) {
+            request.setUrgent();
+        }
+        return WearConnectivityMetrics.getInstance().trackSend(itemPath, getSize(request), putDataItem(path, request, urgent))
+                .continueWith(DIRECT_EXECUTOR, task -> {
+            if (!task.isSuccessful()) {
+                promise.reject("E_SEND_FAILED", "Data sending failed: " + task.getException());
+                return null;
             }
+            deltaSync.commit(path, plan);
+            dataCache.put(task.getResult().getUri().getPath(), plan.dataMap);
+            promise.resolve(isPatch ? "Data patch sent successfully via DataClient." : "Data sent successfully via DataClient.");
+            return null;
+        });
+    }
+
+    /**
+     * Writes the DataItem once the send scheduler picks it, urgent items go in the control lane.
+     */
+    private Task<DataItem> putDataItem(String path, PutDataRequest request, boolean urgent) {
+        WearConnectivitySendScheduler scheduler = WearConnectivitySendScheduler.getInstance();
+        String lane = scheduler.getLane(path, urgent ? WearConnectivitySendScheduler.LANE_CONTROL : WearConnectivitySendScheduler.LANE_NORMAL);
+        return scheduler.submit(lane, () -> dataClient.putDataItem(request));
+    }
+
+    private static int getSize(PutDataRequest request) {
+        byte[] data = request.getData();
+        return data != null ? data.length : 0;
+    }
+
+    public WritableMap getDeltaSyncStats() {
+        return deltaSync.getStats();
+    }
+
+    /**
+     * Replaces the content of the DataMap with a single compressed byte array, when it shrinks.
+     */
+    private void compressDataMap(DataMap dataMap) {
+        byte[] serialized = dataMap.toByteArray();
+        byte[] compressed = compression.compress(serialized);
+        if (compressed == serialized) {
+            return;
         }
+        for (String key : new ArrayList<>(dataMap.keySet())) {
+            dataMap.remove(key);
+        }
+        dataMap.putByteArray(COMPRESSED_DATA_KEY, compressed);
+    }
+
+    /**
+     * Returns the DataMap of the item, decompressed if it was sent compressed.
+     */
+    DataMap getDataMap(DataItem item) {
+        DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
+        if (dataMap.size() != 1 || !dataMap.containsKey(COMPRESSED_DATA_KEY)) {
+            return dataMap;
+        }
+        byte[] compressed = dataMap.getByteArray(COMPRESSED_DATA_KEY);
+        if (!WearConnectivityCompression.isCompressed(compressed)) {
+            return dataMap;
+        }
+        return DataMap.fromByteArray(compression.decompress(compressed));
+    }
+
+    /**
+     * Enables or tunes DataItem compression, e.g. { enabled: true, minSizeBytes: 256, level: 6 }.
+     */
+    public void configureCompression(ReadableMap options) {
+        compression.configure(options);
+    }
+
+    public WritableMap getCompressionStats() {
+        return compression.getStats();
+    }
+
+    public static WritableMap toWritableMap(DataMap dataMap) {
+        return WearConnectivityDataMaps.toWritableMap(dataMap);
     }
-    
+
+    public static void putAll(DataMap dataMap, ReadableMap data) {
+        WearConnectivityDataMaps.putAll(dataMap, data);
+    }
+
     public static void putAll(DataMap dataMap, ReadableArray data, String key) {
-        if (data == null) {
+        WearConnectivityDataMaps.putAll(dataMap, data, key);
+    }
+
+    public void configureFileTransfer(ReadableMap options) {
+        if (options == null) {
             return;
         }
+        if (options.hasKey(OPTION_CHANNEL_THRESHOLD_BYTES)) {
+            channelThresholdBytes = Math.max(0, (long) options.getDouble(OPTION_CHANNEL_THRESHOLD_BYTES));
+        }
+        if (options.hasKey(OPTION_PROGRESS_INTERVAL_MS)) {
+            progressIntervalMs = Math.max(0, (long) options.getDouble(OPTION_PROGRESS_INTERVAL_MS));
+        }
+        if (options.hasKey(OPTION_PROGRESS_STEP_BYTES)) {
+            progressStepBytes = Math.max(0, (long) options.getDouble(OPTION_PROGRESS_STEP_BYTES));
+        }
+        if (options.hasKey(OPTION_MAX_CONCURRENT_TRANSFERS)) {
+            setMaxConcurrentTransfers(Math.max(1, options.getInt(OPTION_MAX_CONCURRENT_TRANSFERS)));
+        }
+    }
 
-        ReadableType type = data.getType(0);
-        int size = data.size();
-        switch (type) {
-            case String:
-                String[] stringArray = new String[size];
-                for (int i = 0; i < size; i++) {
-                    stringArray[i] = data.getString(i);
-                    if (i == size - 1) {
-                        dataMap.putStringArray(key, stringArray);
-                    }
-                }
-                break;
-            case Number:
-                float[] doubleArray = new float[size];
-                for (int i = 0; i < size; i++) {
-                    doubleArray[i] = (float) data.getDouble(i);
-                    if (i == size - 1) {
-                        dataMap.putFloatArray(key, doubleArray);
-                    }
-                }
-                break;
-            case Boolean:
-                // TODO test
-                byte[] booleanArray = new byte[size];
-                for (int i = 0; i < size; i++) {
-                    booleanArray[i] = (byte) (data.getBoolean(i) ? 1 : 0);
-                    if (i == size - 1) {
-                        dataMap.putByteArray(key, booleanArray);
-                    }
-                }
-                break;
-            case Null:
-                // TODO test
-                break;
-            case Map:
-                DataMap[] dataMaps = new DataMap[size];
-                for (int i = 0; i < size; i++) {
-                    dataMaps[i] = new DataMap();
-                    putAll(dataMaps[i], data.getMap(i));
-                    if (i == size - 1) {
-                        dataMap.putDataMapArrayList(key, new ArrayList<>(Arrays.asList(dataMaps)));
-                    }
-                }
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported type: " + type);
+    private synchronized void setMaxConcurrentTransfers(int maxConcurrentTransfers) {
+        // the core size must never exceed the maximum size
+        if (maxConcurrentTransfers > fileExecutor.getMaximumPoolSize()) {
+            fileExecutor.setMaximumPoolSize(maxConcurrentTransfers);
+            fileExecutor.setCorePoolSize(maxConcurrentTransfers);
+        } else {
+            fileExecutor.setCorePoolSize(maxConcurrentTransfers);
+            fileExecutor.setMaximumPoolSize(maxConcurrentTransfers);
         }
     }
 
     /**
-     * Sends a file (as an Asset) using the DataClient API.
+     * Sends a file to the watch.
+     * Files smaller than the channel threshold are sent as an Asset using the DataClient API,
+     * larger files are streamed to every nearby node through the ChannelClient API.
      * @param uri path to the file to be sent.
      */
-    public void sendFile(String uri, Promise promise) {
+    public void sendFile(String uri, List<Node> connectedNodes, Promise promise) {
         File file = new File(uri);
-        Asset asset = createAssetFromFile(file);
+        if (!file.isFile()) {
+            promise.reject("E_FILE_NOT_FOUND", "File not found: " + uri);
+            return;
+        }
+        WearConnectivitySendScheduler scheduler = WearConnectivitySendScheduler.getInstance();
+        if (file.length() >= channelThresholdBytes) {
+            scheduler.submit(WearConnectivitySendScheduler.LANE_BULK, () -> {
+                TaskCompletionSource<Void> completion = new TaskCompletionSource<>();
+                sendExecutor.execute(() -> {
+                    try {
+                        streamFile(file, connectedNodes, promise);
+                    } finally {
+                        completion.setResult(null);
+                    }
+                });
+                return completion.getTask();
+            });
+            return;
+        }
+
+        Asset asset = WearConnectivityFiles.createAssetFromFile(file);
         if (asset == null) {
             FLog.w(TAG, "Failed to create asset from file.");
+            promise.reject("E_SEND_FAILED", "Failed to create asset from file.");
             return;
         }
-        PutDataMapRequest dataMapRequest = PutDataMapRequest.create("/file_transfer");
+        DataMap metadata = new DataMap();
+        metadata.putString("fileName", file.getName());
+        PutDataMapRequest dataMapRequest = PutDataMapRequest.create(FILE_TRANSFER_PATH);
         dataMapRequest.getDataMap().putAsset("file", asset);
+        dataMapRequest.getDataMap().putDataMap("metadata", metadata);
         dataMapRequest.getDataMap().putLong("timestamp", System.currentTimeMillis());
         PutDataRequest request = dataMapRequest.asPutDataRequest();
-        Task<DataItem> task = dataClient.putDataItem(request);
+        long start = System.currentTimeMillis();
+        Task<DataItem> task = WearConnectivityMetrics.getInstance().trackSend(FILE_TRANSFER_PATH, file.length(),
+                scheduler.submit(WearConnectivitySendScheduler.LANE_BULK, () -> dataClient.putDataItem(request)));
         task.addOnSuccessListener(dataItem -> {
+            WearConnectivityMetrics.getInstance().recordFileTransfer(FILE_TRANSFER_PATH, file.length(), System.currentTimeMillis() - start);
             promise.resolve("File sent successfully via DataClient.");
         }).addOnFailureListener(e -> {
             promise.reject("File sending failed: " + e);
         });
     }
 
+    /**
+     * Streams the file to every nearby node, runs on the send executor.
+     */
+    private void streamFile(File file, List<Node> connectedNodes, Promise promise) {
+        WearConnectivityMetrics metrics = WearConnectivityMetrics.getInstance();
+        int sentCount = 0;
+        try {
+            for (Node node : connectedNodes) {
+                if (node.isNearby()) {
+                    long start = System.currentTimeMillis();
+                    try {
+                        streamFileToNode(file, node);
+                    } catch (Exception e) {
+                        metrics.recordSend(FILE_CHANNEL_PATH, file.length(), false, 0);
+                        throw e;
+                    }
+                    long durationMs = System.currentTimeMillis() - start;
+                    metrics.recordSend(FILE_CHANNEL_PATH, file.length(), true, durationMs);
+                    metrics.recordFileTransfer(FILE_CHANNEL_PATH, file.length(), durationMs);
+                    sentCount++;
+                }
+            }
+        } catch (Exception e) {
+            promise.reject("E_SEND_FAILED", "File streaming failed: " + e);
+            return;
+        }
+        if (sentCount == 0) {
+            promise.reject("E_NO_NEARBY_NODES", "No nearby node found");
+        } else {
+            promise.resolve("File sent successfully via ChannelClient.");
+        }
+    }
+
+    /**
+     * Sends the file with the resumable chunked protocol.
+     * When the link drops, the transfer is retried and only the chunks missing on the watch are sent again.
+     */
+    private void streamFileToNode(File file, Node node) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ChannelClient.Channel channel = Tasks.await(channelClient.openChannel(node.getId(), FILE_CHANNEL_PATH + "/" + file.getName()));
+                OutputStream channelStream = new YieldingOutputStream(Tasks.await(channelClient.getOutputStream(channel)));
+                try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(channelStream, STREAM_BUFFER_SIZE));
+                     DataInputStream is = new DataInputStream(Tasks.await(channelClient.getInputStream(channel)))) {
+                    WearConnectivityChunkedTransfer.send(file, WearConnectivityChunkedTransfer.DEFAULT_CHUNK_SIZE, is, os);
+                    return;
+                } finally {
+                    channelClient.close(channel);
+                }
+            } catch (Exception e) {
+                if (attempt == MAX_STREAM_ATTEMPTS) {
+                    throw e;
+                }
+                FLog.w(TAG, "File streaming to " + node.getId() + " failed, attempt " + attempt + ": " + e);
+                Thread.sleep(STREAM_RETRY_DELAY_MS << (attempt - 1));
+            }
+        }
+    }
+
+    private void receiveChannelFile(ChannelClient.Channel channel) {
+        // only keep the last segment, the remote side must not write outside of the files dir
+        String channelFileName = new File(channel.getPath().substring(FILE_CHANNEL_PATH.length())).getName();
+        WearConnectivityFileTransfer transfer = startTransfer(channelFileName);
+        fileExecutor.execute(() -> {
+            try (DataInputStream is = new DataInputStream(new BufferedInputStream(Tasks.await(channelClient.getInputStream(channel)), STREAM_BUFFER_SIZE));
+                 DataOutputStream os = new DataOutputStream(Tasks.await(channelClient.getOutputStream(channel)))) {
+                File file = new File(getReactContext().getFilesDir(), transfer.fileName);
+                WearConnectivityChunkedTransfer.receive(getTransfersDir(), file, is, os, (completedBytes, total) -> {
+                    transfer.setTotalBytes(total);
+                    dispatchProgressEvent(transfer, completedBytes);
+                });
+                recordFileReceived(FILE_CHANNEL_PATH, transfer);
+                finishTransfer(transfer, null);
+            } catch (Exception e) {
+                finishTransfer(transfer, e.toString());
+            } finally {
+                channelClient.close(channel);
+            }
+        });
+    }
+
+    private File getTransfersDir() {
+        return new File(getReactContext().getFilesDir(), WearConnectivityChunkedTransfer.TRANSFERS_DIR);
+    }
+
     @Override
     public void onDataChanged(@NonNull DataEventBuffer dataEvents) {
+        WritableArray changes = null;
         for (DataEvent event : dataEvents) {
-            if (event.getType() == DataEvent.TYPE_CHANGED) {
-                DataItem item = event.getDataItem();
-                if (item.getUri().getPath().equals("/file_transfer")) {
-                    DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
-                    // Extract metadata from the DataMap
-                    if (dataMap.containsKey("metadata")) {
-                        DataMap metadata = dataMap.getDataMap("metadata");
-                        fileName = metadata.getString("fileName", "unknown_file");
+            DataItem item = event.getDataItem();
+            String path = item.getUri().getPath();
+            // the writes of this device are cached, only the remote changes are delivered
+            boolean isLocal = isLocal(item);
+            if (event.getType() == DataEvent.TYPE_DELETED) {
+                dataCache.remove(path);
+                if (isLocal) {
+                    continue;
+                }
+                if (WearConnectivityDeltaSync.isPatchPath(path)) {
+                    // the base item is left without its patch, unless it was deleted too
+                    path = getBasePath(path);
+                    WritableMap data = dataCache.peek(path);
+                    if (data != null && isSubscribed(path)) {
+                        changes = addChange(changes, "changed", item, path, data);
                     }
+                } else if (isSubscribed(path)) {
+                    changes = addChange(changes, "deleted", item, path, null);
+                }
+                continue;
+            }
+            if (event.getType() != DataEvent.TYPE_CHANGED) {
+                continue;
+            }
+            if (!isLocal) {
+                byte[] itemData = item.getData();
+                WearConnectivityMetrics.getInstance().recordReceived(path, itemData != null ? itemData.length : 0);
+            }
+            DataMap dataMap;
+            try {
+                dataMap = getDataMap(item);
+            } catch (IllegalArgumentException e) {
+                FLog.w(TAG, "onDataChanged malformed compressed item " + item.getUri() + ": " + e);
+                continue;
+            }
+            if (path.equals(FILE_TRANSFER_PATH)) {
+                // Extract metadata from the DataMap
+                String fileName = "unknown_file";
+                if (dataMap.containsKey("metadata")) {
+                    DataMap metadata = dataMap.getDataMap("metadata");
+                    fileName = metadata.getString("fileName", "unknown_file");
+                }
 
-                    Asset asset = dataMap.getAsset("file");
-                    if (asset != null) {
-                        receiveFile(asset);
-                    }
+                Asset asset = dataMap.getAsset("file");
+                if (asset != null) {
+                    receiveFile(asset, fileName);
+                }
+                continue;
+            }
+            dataCache.put(path, dataMap);
+            if (isLocal) {
+                continue;
+            }
+            if (WearConnectivityDeltaSync.isPatchPath(path)) {
+                // a patch is delivered as a change of its base item
+                path = getBasePath(path);
+                if (!isSubscribed(path)) {
+                    continue;
                 }
+                WritableMap data = dataCache.peek(path);
+                if (data != null) {
+                    changes = addChange(changes, "changed", item, path, data);
+                } else {
+                    deliverPatchedItem(item.getUri().getHost(), path, dataMap);
+                }
+            } else if (isSubscribed(path)) {
+                WritableMap data = dataCache.peek(path);
+                if (data == null) {
+                    data = toWritableMap(WearConnectivityDeltaSync.merge(dataMap, null));
+                }
+                changes = addChange(changes, "changed", item, path, data);
             }
         }
+        if (changes != null) {
+            // one event for the whole buffer, a sync burst costs a single bridge call
+            emitDataChanges(changes);
+        }
     }
 
     /**
-     * Helper method to create an Asset from a file.
-     * @param file the file to convert.
-     * @return the resulting Asset, or null if an error occurred.
+     * True for the items written by this device, they were already counted when sent.
      */
-    private Asset createAssetFromFile(File file) {
-        try {
-            FileInputStream fileInputStream = new FileInputStream(file);
-            byte[] byteArray = new byte[(int) file.length()];
-            fileInputStream.read(byteArray);
-            fileInputStream.close();
-            return Asset.createFromBytes(byteArray);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+    private boolean isLocal(DataItem item) {
+        String nodeId = localNodeId;
+        return nodeId != null && nodeId.equals(item.getUri().getHost());
+    }
+
+    private static String getBasePath(String patchPath) {
+        return patchPath.substring(0, patchPath.length() - WearConnectivityDeltaSync.PATCH_SUFFIX.length());
+    }
+
+    /**
+     * Reads back the base item of a patch whose base is not cached, and delivers it with the patch applied.
+     */
+    private void deliverPatchedItem(String nodeId, String path, DataMap patch) {
+        Uri uri = new Uri.Builder().scheme(PutDataRequest.WEAR_URI_SCHEME).authority(nodeId).path(path).build();
+        dataClient.getDataItem(uri).addOnSuccessListener(fileExecutor, baseItem -> {
+            if (baseItem == null) {
+                FLog.w(TAG, "onDataChanged patch without base item " + path);
+                return;
+            }
+            DataMap base;
+            try {
+                base = getDataMap(baseItem);
+            } catch (IllegalArgumentException e) {
+                FLog.w(TAG, "onDataChanged malformed compressed item " + uri + ": " + e);
+                return;
+            }
+            dataCache.warm(path, base);
+            WritableMap data = toWritableMap(WearConnectivityDeltaSync.merge(base, patch));
+            emitDataChanges(addChange(null, "changed", baseItem, path, data));
+        }).addOnFailureListener(fileExecutor, e -> FLog.w(TAG, "onDataChanged cannot read " + uri + ": " + e));
+    }
+
+    private void emitDataChanges(WritableArray changes) {
+        if (getReactContext().hasActiveReactInstance()) {
+            WritableMap event = Arguments.createMap();
+            event.putArray("changes", changes);
+            getReactContext().getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(DATA_CHANGED_EVENT, event);
         }
     }
 
+    private static WritableArray addChange(WritableArray changes, String type, DataItem item, String path, WritableMap data) {
+        if (changes == null) {
+            changes = Arguments.createArray();
+        }
+        WritableMap change = Arguments.createMap();
+        change.putString("type", type);
+        change.putString("path", path);
+        change.putString("nodeId", item.getUri().getHost());
+        if (data != null) {
+            change.putMap("data", data);
+        } else {
+            change.putNull("data");
+        }
+        changes.pushMap(change);
+        return changes;
+    }
+
+    /**
+     * Starts delivering the changes of the DataItems whose path starts with prefix in DataChangedEvent events.
+     * Subscriptions are counted, every subscribe must be followed by an unsubscribe.
+     */
+    public synchronized void subscribeDataChanges(String prefix) {
+        Integer count = dataSubscriptions.get(prefix);
+        dataSubscriptions.put(prefix, count == null ? 1 : count + 1);
+    }
+
+    public synchronized void unsubscribeDataChanges(String prefix) {
+        Integer count = dataSubscriptions.get(prefix);
+        if (count == null || count <= 1) {
+            dataSubscriptions.remove(prefix);
+        } else {
+            dataSubscriptions.put(prefix, count - 1);
+        }
+    }
+
+    private boolean isSubscribed(String path) {
+        for (String prefix : dataSubscriptions.keySet()) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills the cache with the DataItems already synced, without blocking the caller.
+     */
+    private void warmDataCache() {
+        dataClient.getDataItems().addOnSuccessListener(fileExecutor, dataItems -> {
+            try {
+                for (DataItem item : dataItems) {
+                    String path = item.getUri().getPath();
+                    if (!path.equals(FILE_TRANSFER_PATH)) {
+                        dataCache.warm(path, getDataMap(item));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                FLog.w(TAG, "warmDataCache malformed compressed item: " + e);
+            } finally {
+                dataItems.release();
+            }
+        });
+    }
+
+    /**
+     * Returns the cached data of path, without a DataClient round trip, or null.
+     */
+    public WritableMap getCachedDataItem(String path) {
+        return dataCache.get(path);
+    }
+
+    /**
+     * Returns the cached DataItems whose path starts with prefix.
+     */
+    public WritableArray getCachedDataItems(String prefix) {
+        return dataCache.getAll(prefix);
+    }
+
+    /**
+     * Bounds the DataItem cache, e.g. { maxEntries: 256, maxBytes: 1048576 }.
+     */
+    public void configureDataCache(ReadableMap options) {
+        dataCache.configure(options);
+    }
+
+    public WritableMap getDataCacheStats() {
+        return dataCache.getStats();
+    }
+
     private static ReactApplicationContext getReactContext() {
         return reactContext;
     }
 
-    private void receiveFile(Asset asset) {
+    private void receiveFile(Asset asset, String fileName) {
+        WearConnectivityFileTransfer transfer = startTransfer(new File(fileName).getName());
         Task<DataClient.GetFdForAssetResponse> task = dataClient.getFdForAsset(asset);
-        startTime = System.currentTimeMillis();
+        task.addOnSuccessListener(fileExecutor, response -> handleFileReceived(transfer, response))
+                .addOnFailureListener(fileExecutor, e -> finishTransfer(transfer, e.toString()));
+    }
+
+    /**
+     * Registers a new transfer and dispatches its 'started' event.
+     */
+    private WearConnectivityFileTransfer startTransfer(String fileName) {
+        WearConnectivityFileTransfer transfer = new WearConnectivityFileTransfer(fileName.isEmpty() ? "unknown_file" : fileName);
+        activeTransfers.put(transfer.id, transfer);
+        dispatchFileTransferEvent("started", transfer, null);
+        return transfer;
+    }
 
-        // Dispatch 'started' event
-        dispatchFileTransferEvent("started", startTime, 0, 0, 0, 0, fileName, null);
-        task.addOnSuccessListener(this::handleFileReceived)
-                .addOnFailureListener(this::handleFileReceiveError);
+    private static void recordFileReceived(String path, WearConnectivityFileTransfer transfer) {
+        WearConnectivityMetrics.getInstance().recordFileTransfer(path, transfer.getTotalBytes(),
+                System.currentTimeMillis() - transfer.startTime);
     }
 
+    /**
+     * Dispatches the 'finished' event, or the 'error' event when errorMessage is not null.
+     */
+    private void finishTransfer(WearConnectivityFileTransfer transfer, String errorMessage) {
+        activeTransfers.remove(transfer.id);
+        dispatchFileTransferEvent(errorMessage == null ? "finished" : "error", transfer, errorMessage);
+    }
 
     /**
      * Dispatches a file transfer event to React Native.
      */
-    private void dispatchFileTransferEvent(
-            String type, long startTime, long completedUnitCount, long estimatedTimeRemaining,
-            float fractionCompleted, long throughput, String fileName, String errorMessage) {
+    private void dispatchFileTransferEvent(String type, WearConnectivityFileTransfer transfer, String errorMessage) {
         WritableMap event = Arguments.createMap();
-        String correctPath = "/data/data/" + getReactContext().getPackageName() + "/files/" + fileName;
-        FLog.w(TAG, "WatchFileReceived filePath: " + correctPath);
+        String correctPath = "/data/data/" + getReactContext().getPackageName() + "/files/" + transfer.fileName;
+        boolean isFinished = type.equals("finished");
         event.putString("type", type);
         event.putString("url", correctPath);
-        event.putString("id", fileName);
-        event.putDouble("startTime", startTime);
-        event.putDouble("endTime", type.equals("finished") ? System.currentTimeMillis() : 0);
-        event.putDouble("completedUnitCount", completedUnitCount);
-        event.putDouble("estimatedTimeRemaining", estimatedTimeRemaining);
-        event.putDouble("fractionCompleted", fractionCompleted);
-        event.putDouble("throughput", throughput);
-        event.putMap("metadata", getFileMetadata(fileName)); // Get metadata if available
+        event.putString("id", transfer.id);
+        event.putDouble("startTime", transfer.startTime);
+        event.putDouble("endTime", isFinished ? System.currentTimeMillis() : 0);
+        event.putDouble("completedUnitCount", isFinished ? transfer.getTotalBytes() : transfer.getCompletedBytes());
+        event.putDouble("totalUnitCount", transfer.getTotalBytes());
+        event.putDouble("estimatedTimeRemaining", isFinished ? 0 : transfer.getEstimatedTimeRemaining());
+        event.putDouble("fractionCompleted", isFinished ? 1.0f : transfer.getFractionCompleted());
+        event.putDouble("throughput", transfer.getThroughput());
+        event.putMap("metadata", getFileMetadata(transfer.fileName)); // Get metadata if available
         if (errorMessage != null) {
             event.putString("error", errorMessage);
         } else {
@@ -274,55 +727,81 @@ public class WearConnectivityDataClient implements DataClient.OnDataChangedListe
         return metadata;
     }
 
-    private void handleFileReceived(DataClient.GetFdForAssetResponse response) {
+    /**
+     * Saves the asset, runs on the file executor.
+     * The asset is written to a partial file named after the transfer id and then moved to its destination,
+     * so two transfers of the same file name received in parallel never write the same file.
+     */
+    private void handleFileReceived(WearConnectivityFileTransfer transfer, DataClient.GetFdForAssetResponse response) {
         InputStream is = response.getInputStream();
         if (is == null) {
             FLog.w(TAG, "WatchFileReceiveError: InputStream is null");
+            finishTransfer(transfer, "InputStream is null");
             return;
         }
 
         try {
-            File file = new File(getReactContext().getFilesDir(), fileName);
-            totalBytes = response.getInputStream().available();
-
-            saveFile(is, file);
-            dispatchFileTransferEvent("finished", startTime, totalBytes, 0, 1.0f, 0, fileName, null);
+            File file = new File(getReactContext().getFilesDir(), transfer.fileName);
+            File transfersDir = getTransfersDir();
+            if (!transfersDir.isDirectory() && !transfersDir.mkdirs()) {
+                throw new IOException("Cannot create " + transfersDir);
+            }
+            File partFile = new File(transfersDir, transfer.id + ".part");
+            transfer.setTotalBytes(is.available());
+
+            long savedBytes;
+            try {
+                savedBytes = WearConnectivityFiles.saveFile(is, partFile,
+                        completedBytes -> dispatchProgressEvent(transfer, completedBytes));
+                if (file.exists() && !file.delete()) {
+                    throw new IOException("Cannot replace " + file);
+                }
+                if (!partFile.renameTo(file)) {
+                    throw new IOException("Cannot move " + partFile + " to " + file);
+                }
+            } finally {
+                partFile.delete();
+            }
+            transfer.setTotalBytes(savedBytes);
+            recordFileReceived(FILE_TRANSFER_PATH, transfer);
+            finishTransfer(transfer, null);
         } catch (IOException e) {
-            dispatchFileTransferEvent("error", startTime, 0, 0, 0, 0, fileName, e.getMessage());
+            finishTransfer(transfer, e.getMessage());
         }
     }
 
-    private void handleFileReceiveError(@NonNull Exception e) {
-        dispatchFileTransferEvent("error", startTime, 0, 0, 0, 0, fileName, e.toString());
-    }
-
     private void dispatchEvent(String eventName, String body) {
         getReactContext().getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
                 .emit(eventName, body);
     }
 
-    private void saveFile(InputStream is, File file) throws IOException {
-        FileOutputStream fos = new FileOutputStream(file);
-        byte[] buffer = new byte[1024];
-        int bytesRead;
-        long completedBytes = 0;
-
-        while ((bytesRead = is.read(buffer)) != -1) {
-            fos.write(buffer, 0, bytesRead);
-            completedBytes += bytesRead;
-
-            // Calculate progress metrics
-            float fractionCompleted = (float) completedBytes / totalBytes;
-            long elapsedTime = System.currentTimeMillis() - startTime;
-            long estimatedTimeRemaining = (long) ((1 - fractionCompleted) * elapsedTime / fractionCompleted);
-            long throughput = completedBytes * 8 / (elapsedTime + 1); // Avoid division by zero
+    /**
+     * Dispatches a 'progress' event, unless the previous one was sent less than progressIntervalMs
+     * or progressStepBytes ago. The end of the transfer is reported by the 'finished' event.
+     */
+    private void dispatchProgressEvent(WearConnectivityFileTransfer transfer, long completedBytes) {
+        if (transfer.updateProgress(completedBytes, progressIntervalMs, progressStepBytes)) {
+            dispatchFileTransferEvent("progress", transfer, null);
+        }
+    }
 
-            // Dispatch 'progress' event
-            dispatchFileTransferEvent("progress", startTime, completedBytes, estimatedTimeRemaining, fractionCompleted, throughput, fileName, null);
+    /**
+     * Returns the progress of the incoming transfers that did not finish yet.
+     */
+    public WritableArray getActiveTransfers() {
+        WritableArray transfers = Arguments.createArray();
+        for (WearConnectivityFileTransfer transfer : activeTransfers.values()) {
+            WritableMap map = Arguments.createMap();
+            map.putString("id", transfer.id);
+            map.putString("fileName", transfer.fileName);
+            map.putDouble("startTime", transfer.startTime);
+            map.putDouble("completedUnitCount", transfer.getCompletedBytes());
+            map.putDouble("totalUnitCount", transfer.getTotalBytes());
+            map.putDouble("fractionCompleted", transfer.getFractionCompleted());
+            map.putDouble("throughput", transfer.getThroughput());
+            transfers.pushMap(map);
         }
-        fos.flush();
-        fos.close();
-        is.close();
+        return transfers;
     }
 
     @Override
@@ -338,5 +817,26 @@ public class WearConnectivityDataClient implements DataClient.OnDataChangedListe
     @Override
     public void onHostDestroy() {
         dataClient.removeListener(this);
+        channelClient.unregisterChannelCallback(channelCallback);
+    }
+
+    /**
+     * Channel stream of a file transfer that lets the control sends go first, once per buffered write.
+     */
+    private static class YieldingOutputStream extends FilterOutputStream {
+        YieldingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                WearConnectivitySendScheduler.getInstance().yieldToControl();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("File streaming interrupted");
+            }
+            out.write(b, off, len);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataMap;
+
+import java.util.List;
+
+/**
+ * Conversions between the JS maps of the bridge and the DataMaps of the DataClient.
+ */
+public final class WearConnectivityDataMaps {
+
+    private WearConnectivityDataMaps() {
+    }
+
+    /**
+     * Converts a DataMap to a map for JS, numbers become doubles and the arrays written by
+     * {@link WearConnectivityArrays} are decoded, other byte arrays become arrays of numbers.
+     * Assets are skipped.
+     */
+    public static WritableMap toWritableMap(DataMap dataMap) {
+        WritableMap map = Arguments.createMap();
+        for (String key : dataMap.keySet()) {
+            Object value = dataMap.get(key);
+            if (value == null) {
+                map.putNull(key);
+            } else if (value instanceof Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Number) {
+                map.putDouble(key, ((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                map.putString(key, (String) value);
+            } else if (value instanceof DataMap) {
+                map.putMap(key, toWritableMap((DataMap) value));
+            } else if (!(value instanceof Asset)) {
+                map.putArray(key, toWritableArray(value));
+            }
+        }
+        return map;
+    }
+
+    private static WritableArray toWritableArray(Object value) {
+        WritableArray array = Arguments.createArray();
+        if (value instanceof float[]) {
+            for (float item : (float[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof long[]) {
+            for (long item : (long[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof byte[] && WearConnectivityArrays.isEncoded((byte[]) value)) {
+            return WearConnectivityArrays.decode((byte[]) value);
+        } else if (value instanceof byte[]) {
+            for (byte item : (byte[]) value) {
+                array.pushInt(item);
+            }
+        } else if (value instanceof String[]) {
+            for (String item : (String[]) value) {
+                array.pushString(item);
+            }
+        } else if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof DataMap) {
+                    array.pushMap(toWritableMap((DataMap) item));
+                } else if (item instanceof Number) {
+                    array.pushDouble(((Number) item).doubleValue());
+                } else if (item instanceof String) {
+                    array.pushString((String) item);
+                }
+            }
+        }
+        return array;
+    }
+
+    public static void putAll(DataMap dataMap, ReadableMap data) {
+        if (data == null) {
+            return;
+        }
+
+        ReadableMapKeySetIterator iterator = data.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            switch (data.getType(key)) {
+            case Null:
+                // TODO test
+                break;
+            case Boolean:
+                dataMap.putBoolean(key, data.getBoolean(key));
+                break;
+            case Number:
+                dataMap.putDouble(key, data.getDouble(key));
+                break;
+            case String:
+                dataMap.putString(key, data.getString(key));
+                break;
+            case Map:
+                DataMap nestedDataMap = new DataMap();
+                putAll(nestedDataMap, data.getMap(key));
+                dataMap.putDataMap(key, nestedDataMap);
+                break;
+            case Array:
+                putAll(dataMap, data.getArray(key), key);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + data.getType(key));
+            }
+        }
+    }
+
+    public static void putAll(DataMap dataMap, ReadableArray data, String key) {
+        if (data == null) {
+            return;
+        }
+        WearConnectivityArrays.put(dataMap, key, data);
+    }
+}
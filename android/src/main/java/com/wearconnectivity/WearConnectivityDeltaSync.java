@@ -0,0 +1,180 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.wearable.DataMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delta mode of sendData. The last DataMap sent on each path is kept in memory, an unchanged DataMap
+ * is not written again and a DataMap with few changed keys is written as a patch item on
+ * path + {@link #PATCH_SUFFIX}, holding the keys changed since the last full write of the base item.
+ * The base item and the patch carry the same version, a patch whose version does not match the base is stale.
+ */
+public class WearConnectivityDeltaSync {
+    public static final String PATCH_SUFFIX = "/wear-connectivity-patch";
+    public static final String VERSION_KEY = "wearConnectivityVersion";
+    public static final String REMOVED_KEYS_KEY = "wearConnectivityRemovedKeys";
+
+    /**
+     * What sendData has to write for a DataMap.
+     */
+    public static class Plan {
+        public static final int SKIP = 0;
+        public static final int FULL = 1;
+        public static final int PATCH = 2;
+        public final int type;
+        // the base item for FULL, the patch item for PATCH
+        public final DataMap dataMap;
+        final DataMap next;
+        final long version;
+
+        Plan(int type, DataMap dataMap, DataMap next, long version) {
+            this.type = type;
+            this.dataMap = dataMap;
+            this.next = next;
+            this.version = version;
+        }
+    }
+
+    private static class SyncState {
+        final long version;
+        final DataMap base;
+        final DataMap current;
+
+        SyncState(long version, DataMap base, DataMap current) {
+            this.version = version;
+            this.base = base;
+            this.current = current;
+        }
+    }
+
+    private final Map<String, SyncState> states = new ConcurrentHashMap<>();
+    private final AtomicLong skippedWrites = new AtomicLong();
+    private final AtomicLong fullWrites = new AtomicLong();
+    private final AtomicLong patchWrites = new AtomicLong();
+    private final AtomicLong patchedKeys = new AtomicLong();
+
+    /**
+     * Diffs next against the last DataMap sent on path. A patch is written only while it holds
+     * less than half the keys of the base item, otherwise the base item is written again.
+     * The previous plan of the path must be committed, or its write must have failed, before the next one is made.
+     */
+    public Plan plan(String path, DataMap next) {
+        SyncState state = states.get(path);
+        if (state != null && mapEquals(state.current, next)) {
+            skippedWrites.incrementAndGet();
+            return new Plan(Plan.SKIP, null, next, state.version);
+        }
+        if (state != null) {
+            DataMap patch = new DataMap();
+            patch.putAll(next);
+            ArrayList<String> removedKeys = new ArrayList<>();
+            for (String key : state.base.keySet()) {
+                if (!next.containsKey(key)) {
+                    removedKeys.add(key);
+                } else if (valueEquals(state.base.get(key), next.get(key))) {
+                    patch.remove(key);
+                }
+            }
+            int changedKeys = patch.size() + removedKeys.size();
+            if (changedKeys * 2 < state.base.size()) {
+                patch.putStringArrayList(REMOVED_KEYS_KEY, removedKeys);
+                patch.putLong(VERSION_KEY, state.version);
+                return new Plan(Plan.PATCH, patch, next, state.version);
+            }
+        }
+        long version = state != null ? state.version + 1 : System.currentTimeMillis();
+        DataMap base = new DataMap();
+        base.putAll(next);
+        base.putLong(VERSION_KEY, version);
+        return new Plan(Plan.FULL, base, next, version);
+    }
+
+    /**
+     * Records the plan once its item was written.
+     */
+    public void commit(String path, Plan plan) {
+        switch (plan.type) {
+            case Plan.FULL:
+                fullWrites.incrementAndGet();
+                states.put(path, new SyncState(plan.version, plan.next, plan.next));
+                break;
+            case Plan.PATCH:
+                patchWrites.incrementAndGet();
+                patchedKeys.addAndGet(plan.dataMap.size() - 2);
+                SyncState state = states.get(path);
+                if (state != null && state.version == plan.version) {
+                    states.put(path, new SyncState(plan.version, state.base, plan.next));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Forgets the last DataMap sent on path, the next delta sendData writes the whole item.
+     */
+    public void reset(String path) {
+        states.remove(path);
+    }
+
+    /**
+     * Applies a patch item on its base item, as read by the receiver. The patch is ignored when it is stale.
+     */
+    public static DataMap merge(DataMap base, DataMap patch) {
+        DataMap merged = new DataMap();
+        merged.putAll(base);
+        merged.remove(VERSION_KEY);
+        if (patch == null || patch.getLong(VERSION_KEY, -1) != base.getLong(VERSION_KEY, -2)) {
+            return merged;
+        }
+        merged.putAll(patch);
+        merged.remove(VERSION_KEY);
+        merged.remove(REMOVED_KEYS_KEY);
+        ArrayList<String> removedKeys = patch.getStringArrayList(REMOVED_KEYS_KEY);
+        if (removedKeys != null) {
+            for (String key : removedKeys) {
+                merged.remove(key);
+            }
+        }
+        return merged;
+    }
+
+    public static boolean isPatchPath(String path) {
+        return path.endsWith(PATCH_SUFFIX);
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("skippedWrites", skippedWrites.get());
+        stats.putDouble("fullWrites", fullWrites.get());
+        stats.putDouble("patchWrites", patchWrites.get());
+        stats.putDouble("patchedKeys", patchedKeys.get());
+        stats.putDouble("paths", states.size());
+        return stats;
+    }
+
+    private static boolean mapEquals(DataMap a, DataMap b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (String key : a.keySet()) {
+            if (!b.containsKey(key) || !valueEquals(a.get(key), b.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Object a, Object b) {
+        // deepEquals compares the primitive arrays of the DataMap by content
+        return Arrays.deepEquals(new Object[]{a}, new Object[]{b});
+    }
+}
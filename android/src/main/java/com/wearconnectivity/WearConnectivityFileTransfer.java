@@ -0,0 +1,69 @@
+package com.wearconnectivity;
+
+import java.util.UUID;
+
+/**
+ * State of a single incoming file transfer.
+ * Every transfer tracks its own name, timing and progress, so concurrent transfers do not interfere.
+ */
+public class WearConnectivityFileTransfer {
+    public final String id;
+    public final String fileName;
+    public final long startTime;
+    private volatile long totalBytes;
+    private volatile long completedBytes;
+    private long lastProgressTime;
+    private long lastProgressBytes;
+
+    public WearConnectivityFileTransfer(String fileName) {
+        this.id = UUID.randomUUID().toString();
+        this.fileName = fileName;
+        this.startTime = System.currentTimeMillis();
+        this.lastProgressTime = startTime;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long getCompletedBytes() {
+        return completedBytes;
+    }
+
+    /**
+     * Records the progress and returns true when a 'progress' event should be dispatched,
+     * that is when at least intervalMs and stepBytes passed since the previous event.
+     */
+    public boolean updateProgress(long completedBytes, long intervalMs, long stepBytes) {
+        this.completedBytes = completedBytes;
+        long now = System.currentTimeMillis();
+        if (now - lastProgressTime < intervalMs || completedBytes - lastProgressBytes < stepBytes) {
+            return false;
+        }
+        lastProgressTime = now;
+        lastProgressBytes = completedBytes;
+        return true;
+    }
+
+    public float getFractionCompleted() {
+        return totalBytes > 0 ? (float) completedBytes / totalBytes : 1.0f;
+    }
+
+    public long getEstimatedTimeRemaining() {
+        float fractionCompleted = getFractionCompleted();
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        return fractionCompleted > 0 ? (long) ((1 - fractionCompleted) * elapsedTime / fractionCompleted) : 0;
+    }
+
+    /**
+     * Average throughput in bits per millisecond since the transfer started.
+     */
+    public long getThroughput() {
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        return completedBytes * 8 / (elapsedTime + 1); // Avoid division by zero
+    }
+}
@@ -0,0 +1,69 @@
+package com.wearconnectivity;
+
+import android.os.ParcelFileDescriptor;
+
+import com.google.android.gms.wearable.Asset;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * File I/O of the file transfers.
+ */
+public final class WearConnectivityFiles {
+    private static final int SAVE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Notified after each buffer written by {@link #saveFile}.
+     */
+    public interface ProgressListener {
+        void onProgress(long completedBytes);
+    }
+
+    private WearConnectivityFiles() {
+    }
+
+    /**
+     * Helper method to create an Asset from a file.
+     * The Asset reads the file descriptor, the file content is never copied in the heap.
+     * @param file the file to convert.
+     * @return the resulting Asset, or null if an error occurred.
+     */
+    public static Asset createAssetFromFile(File file) {
+        try {
+            return Asset.createFromFd(ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Copies the stream to the file through a FileChannel with a large buffer, then closes the stream.
+     * @return the number of bytes saved.
+     */
+    public static long saveFile(InputStream is, File file, ProgressListener listener) throws IOException {
+        byte[] buffer = new byte[SAVE_BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long completedBytes = 0;
+        try (FileOutputStream fos = new FileOutputStream(file);
+             FileChannel fileChannel = fos.getChannel()) {
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                byteBuffer.clear().limit(bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    fileChannel.write(byteBuffer);
+                }
+                completedBytes += bytesRead;
+                listener.onProgress(completedBytes);
+            }
+        } finally {
+            is.close();
+        }
+        return completedBytes;
+    }
+}
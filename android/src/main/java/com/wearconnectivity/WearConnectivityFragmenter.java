@@ -0,0 +1,220 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in fragmentation of payloads larger than the MessageClient limit into
+ * {@link WearConnectivityFrames#TYPE_FRAGMENT} frames, and their reassembly on the receiving side.
+ * Incomplete messages are evicted after reassemblyTimeoutMs, or oldest first when the
+ * buffered fragments exceed maxBufferedBytes.
+ * The sender rejects payloads above maxPayloadBytes, which must not exceed the maxBufferedBytes of the receiver,
+ * a larger message would be evicted before its last fragment arrives.
+ */
+public class WearConnectivityFragmenter implements WearConnectivityMessageBatcher.Sender {
+    public static final String OPTION_ENABLED = "enabled";
+    public static final String OPTION_MAX_MESSAGE_BYTES = "maxMessageBytes";
+    public static final String OPTION_MAX_BUFFERED_BYTES = "maxBufferedBytes";
+    public static final String OPTION_MAX_PAYLOAD_BYTES = "maxPayloadBytes";
+    public static final String OPTION_REASSEMBLY_TIMEOUT_MS = "reassemblyTimeoutMs";
+    // MessageClient rejects payloads above 100 KB
+    public static final int DEFAULT_MAX_MESSAGE_BYTES = 100 * 1024;
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_PAYLOAD_BYTES = DEFAULT_MAX_BUFFERED_BYTES;
+    public static final long DEFAULT_REASSEMBLY_TIMEOUT_MS = 30000;
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    private static class PartialMessage {
+        final byte[][] fragments;
+        int receivedCount;
+        int bufferedBytes;
+
+        PartialMessage(int count) {
+            this.fragments = new byte[count][];
+        }
+    }
+
+    private final WearConnectivityMessageBatcher.Sender sender;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // insertion order, the first entry is the oldest incomplete message
+    private final Map<String, PartialMessage> partialMessages = new LinkedHashMap<>();
+    private final AtomicLong nextMessageId = new AtomicLong(new SecureRandom().nextLong());
+    private final AtomicLong fragmentedMessages = new AtomicLong();
+    private final AtomicLong fragmentsSent = new AtomicLong();
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final AtomicLong reassembledMessages = new AtomicLong();
+    private final AtomicLong timedOutMessages = new AtomicLong();
+    private final AtomicLong evictedMessages = new AtomicLong();
+    private int bufferedBytes;
+    private volatile boolean enabled;
+    private volatile int maxMessageBytes = DEFAULT_MAX_MESSAGE_BYTES;
+    private volatile int maxBufferedBytes = DEFAULT_MAX_BUFFERED_BYTES;
+    private volatile int maxPayloadBytes = DEFAULT_MAX_PAYLOAD_BYTES;
+    private volatile long reassemblyTimeoutMs = DEFAULT_REASSEMBLY_TIMEOUT_MS;
+
+    public WearConnectivityFragmenter(WearConnectivityMessageBatcher.Sender sender) {
+        this.sender = sender;
+    }
+
+    public void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        if (options.hasKey(OPTION_MAX_MESSAGE_BYTES)) {
+            maxMessageBytes = Math.max(WearConnectivityFrames.FRAGMENT_OVERHEAD + 1, options.getInt(OPTION_MAX_MESSAGE_BYTES));
+        }
+        if (options.hasKey(OPTION_MAX_BUFFERED_BYTES)) {
+            maxBufferedBytes = Math.max(0, options.getInt(OPTION_MAX_BUFFERED_BYTES));
+        }
+        if (options.hasKey(OPTION_MAX_PAYLOAD_BYTES)) {
+            maxPayloadBytes = Math.max(1, options.getInt(OPTION_MAX_PAYLOAD_BYTES));
+        }
+        if (options.hasKey(OPTION_REASSEMBLY_TIMEOUT_MS)) {
+            reassemblyTimeoutMs = Math.max(0, (long) options.getDouble(OPTION_REASSEMBLY_TIMEOUT_MS));
+        }
+        if (options.hasKey(OPTION_ENABLED)) {
+            enabled = options.getBoolean(OPTION_ENABLED);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+
+    /**
+     * Sends data as is when it fits in a message, otherwise as fragments.
+     * The returned task fails if any fragment could not be sent,
+     * or with an IllegalArgumentException when data is larger than maxPayloadBytes.
+     */
+    @Override
+    public Task<Integer> send(String nodeId, String path, byte[] data) {
+        if (!enabled || data.length <= maxMessageBytes) {
+            return sender.send(nodeId, path, data);
+        }
+        if (data.length > maxPayloadBytes) {
+            rejectedMessages.incrementAndGet();
+            return Tasks.forException(new IllegalArgumentException(
+                    "Payload of " + data.length + " bytes exceeds maxPayloadBytes " + maxPayloadBytes));
+        }
+        List<byte[]> frames = WearConnectivityFrames.packFragments(nextMessageId.getAndIncrement(), data, maxMessageBytes);
+        List<Task<Integer>> sendTasks = new ArrayList<>(frames.size());
+        for (byte[] frame : frames) {
+            sendTasks.add(sender.send(nodeId, path, frame));
+        }
+        fragmentedMessages.incrementAndGet();
+        fragmentsSent.addAndGet(frames.size());
+        return Tasks.whenAllComplete(sendTasks).continueWithTask(DIRECT_EXECUTOR, allTasks -> {
+            for (Task<Integer> sendTask : sendTasks) {
+                if (!sendTask.isSuccessful()) {
+                    return sendTask;
+                }
+            }
+            return sendTasks.get(sendTasks.size() - 1);
+        });
+    }
+
+    /**
+     * Buffers a fragment received from nodeId and returns the whole payload once every fragment arrived,
+     * or null while the message is incomplete.
+     */
+    public byte[] reassemble(String nodeId, byte[] frame) {
+        WearConnectivityFrames.Fragment fragment = WearConnectivityFrames.unpackFragment(frame);
+        String key = nodeId + ":" + fragment.messageId;
+        synchronized (partialMessages) {
+            PartialMessage message = partialMessages.get(key);
+            if (message == null) {
+                message = new PartialMessage(fragment.count);
+                partialMessages.put(key, message);
+                scheduler.schedule(() -> expire(key), reassemblyTimeoutMs, TimeUnit.MILLISECONDS);
+            } else if (message.fragments.length != fragment.count) {
+                throw new IllegalArgumentException("Fragment count changed for message " + fragment.messageId);
+            }
+            if (message.fragments[fragment.index] != null) {
+                return null;
+            }
+            message.fragments[fragment.index] = fragment.data;
+            message.receivedCount++;
+            message.bufferedBytes += fragment.data.length;
+            bufferedBytes += fragment.data.length;
+            if (message.receivedCount == fragment.count) {
+                remove(key);
+                reassembledMessages.incrementAndGet();
+                return join(message);
+            }
+            evictOldest();
+            return null;
+        }
+    }
+
+    private void expire(String key) {
+        synchronized (partialMessages) {
+            if (remove(key) != null) {
+                timedOutMessages.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest incomplete messages until the buffered bytes fit in maxBufferedBytes.
+     */
+    private void evictOldest() {
+        Iterator<Map.Entry<String, PartialMessage>> iterator = partialMessages.entrySet().iterator();
+        while (bufferedBytes > maxBufferedBytes && iterator.hasNext()) {
+            bufferedBytes -= iterator.next().getValue().bufferedBytes;
+            iterator.remove();
+            evictedMessages.incrementAndGet();
+        }
+    }
+
+    private PartialMessage remove(String key) {
+        PartialMessage message = partialMessages.remove(key);
+        if (message != null) {
+            bufferedBytes -= message.bufferedBytes;
+        }
+        return message;
+    }
+
+    private static byte[] join(PartialMessage message) {
+        byte[] data = new byte[message.bufferedBytes];
+        int offset = 0;
+        for (byte[] fragment : message.fragments) {
+            System.arraycopy(fragment, 0, data, offset, fragment.length);
+            offset += fragment.length;
+        }
+        return data;
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("fragmentedMessages", fragmentedMessages.get());
+        stats.putDouble("fragmentsSent", fragmentsSent.get());
+        stats.putDouble("rejectedMessages", rejectedMessages.get());
+        stats.putDouble("reassembledMessages", reassembledMessages.get());
+        stats.putDouble("timedOutMessages", timedOutMessages.get());
+        stats.putDouble("evictedMessages", evictedMessages.get());
+        synchronized (partialMessages) {
+            stats.putDouble("pendingMessages", partialMessages.size());
+            stats.putDouble("bufferedBytes", bufferedBytes);
+        }
+        return stats;
+    }
+}
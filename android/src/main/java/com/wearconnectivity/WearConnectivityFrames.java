@@ -0,0 +1,211 @@
+package com.wearconnectivity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary frames exchanged on the MessageClient in addition to plain JSON payloads.
+ * A frame starts with {@link #MAGIC}, which can never be the first byte of a UTF-8 JSON payload,
+ * followed by the frame type and a flags byte.
+ */
+public final class WearConnectivityFrames {
+    public static final byte MAGIC = (byte) 0xC1;
+    public static final byte TYPE_BATCH = 0x01;
+    public static final byte TYPE_MAP = 0x02;
+    public static final byte TYPE_REQUEST = 0x03;
+    public static final byte TYPE_RESPONSE = 0x04;
+    public static final byte TYPE_COMPRESSED = 0x05;
+    public static final byte TYPE_FRAGMENT = 0x06;
+    public static final byte TYPE_ARRAY = 0x07;
+    public static final byte FLAG_DEFLATE = 0x01;
+    public static final int HEADER_SIZE = 3;
+    public static final String BATCH_PATH = "/wear-connectivity/batch";
+    private static final int BATCH_COUNT_SIZE = 2;
+    private static final int BATCH_ENTRY_OVERHEAD = 2 + 4;
+    private static final int CORRELATION_ID_SIZE = 8;
+    public static final int FRAGMENT_OVERHEAD = HEADER_SIZE + 8 + 2 + 2;
+    public static final int MAX_FRAGMENTS = 0xFFFF;
+
+    private WearConnectivityFrames() {
+    }
+
+    /**
+     * A message carried inside a batch frame.
+     */
+    public static class Entry {
+        public final String path;
+        public final byte[] data;
+
+        public Entry(String path, byte[] data) {
+            this.path = path;
+            this.data = data;
+        }
+
+        int getFrameSize() {
+            return BATCH_ENTRY_OVERHEAD + path.getBytes(StandardCharsets.UTF_8).length + data.length;
+        }
+    }
+
+    /**
+     * A slice of a message too large for a single MessageClient payload.
+     */
+    public static class Fragment {
+        public final long messageId;
+        public final int index;
+        public final int count;
+        public final byte[] data;
+
+        Fragment(long messageId, int index, int count, byte[] data) {
+            this.messageId = messageId;
+            this.index = index;
+            this.count = count;
+            this.data = data;
+        }
+    }
+
+    public static boolean isFrame(byte[] data) {
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC;
+    }
+
+    public static boolean isFrame(byte[] data, byte type) {
+        return isFrame(data) && data[1] == type;
+    }
+
+    /**
+     * Size of a batch frame holding the given entries.
+     */
+    public static int getBatchSize(int entriesSize) {
+        return HEADER_SIZE + BATCH_COUNT_SIZE + entriesSize;
+    }
+
+    /**
+     * Packs the entries as [header][u16 count] followed by [u16 pathLength][path][u32 dataLength][data] for each entry.
+     */
+    public static byte[] packBatch(List<Entry> entries) {
+        int entriesSize = 0;
+        List<byte[]> paths = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            byte[] path = entry.path.getBytes(StandardCharsets.UTF_8);
+            paths.add(path);
+            entriesSize += BATCH_ENTRY_OVERHEAD + path.length + entry.data.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(getBatchSize(entriesSize));
+        buffer.put(MAGIC).put(TYPE_BATCH).put((byte) 0);
+        buffer.putShort((short) entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            byte[] path = paths.get(i);
+            byte[] data = entries.get(i).data;
+            buffer.putShort((short) path.length);
+            buffer.put(path);
+            buffer.putInt(data.length);
+            buffer.put(data);
+        }
+        return buffer.array();
+    }
+
+    public static List<Entry> unpackBatch(byte[] frame) {
+        if (!isFrame(frame, TYPE_BATCH)) {
+            throw new IllegalArgumentException("Not a batch frame");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frame, HEADER_SIZE, frame.length - HEADER_SIZE);
+        int count = readUnsignedShort(buffer);
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] path = readBytes(buffer, readUnsignedShort(buffer));
+            if (buffer.remaining() < 4) {
+                throw new IllegalArgumentException("Truncated batch frame");
+            }
+            byte[] data = readBytes(buffer, buffer.getInt());
+            entries.add(new Entry(new String(path, StandardCharsets.UTF_8), data));
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " unexpected bytes after the batch entries");
+        }
+        return entries;
+    }
+
+    private static int readUnsignedShort(ByteBuffer buffer) {
+        if (buffer.remaining() < 2) {
+            throw new IllegalArgumentException("Truncated batch frame");
+        }
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated batch frame");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Packs a request or response payload as [header][i64 correlationId][payload].
+     */
+    public static byte[] packCorrelated(byte type, long correlationId, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + CORRELATION_ID_SIZE + payload.length);
+        buffer.put(MAGIC).put(type).put((byte) 0);
+        buffer.putLong(correlationId);
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    public static boolean isCorrelated(byte[] frame) {
+        return (isFrame(frame, TYPE_REQUEST) || isFrame(frame, TYPE_RESPONSE))
+                && frame.length >= HEADER_SIZE + CORRELATION_ID_SIZE;
+    }
+
+    public static long getCorrelationId(byte[] frame) {
+        return ByteBuffer.wrap(frame, HEADER_SIZE, CORRELATION_ID_SIZE).getLong();
+    }
+
+    public static byte[] getCorrelatedPayload(byte[] frame) {
+        return Arrays.copyOfRange(frame, HEADER_SIZE + CORRELATION_ID_SIZE, frame.length);
+    }
+
+    /**
+     * Splits data into frames of at most maxFrameBytes,
+     * [header][i64 messageId][u16 index][u16 count][bytes].
+     */
+    public static List<byte[]> packFragments(long messageId, byte[] data, int maxFrameBytes) {
+        int fragmentSize = maxFrameBytes - FRAGMENT_OVERHEAD;
+        if (fragmentSize <= 0) {
+            throw new IllegalArgumentException("maxFrameBytes is too small: " + maxFrameBytes);
+        }
+        int count = (data.length + fragmentSize - 1) / fragmentSize;
+        if (count > MAX_FRAGMENTS) {
+            throw new IllegalArgumentException("Payload of " + data.length + " bytes needs more than " + MAX_FRAGMENTS + " fragments");
+        }
+        List<byte[]> frames = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            int offset = index * fragmentSize;
+            int length = Math.min(fragmentSize, data.length - offset);
+            ByteBuffer buffer = ByteBuffer.allocate(FRAGMENT_OVERHEAD + length);
+            buffer.put(MAGIC).put(TYPE_FRAGMENT).put((byte) 0);
+            buffer.putLong(messageId);
+            buffer.putShort((short) index);
+            buffer.putShort((short) count);
+            buffer.put(data, offset, length);
+            frames.add(buffer.array());
+        }
+        return frames;
+    }
+
+    public static Fragment unpackFragment(byte[] frame) {
+        if (!isFrame(frame, TYPE_FRAGMENT) || frame.length < FRAGMENT_OVERHEAD) {
+            throw new IllegalArgumentException("Not a fragment frame");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frame, HEADER_SIZE, frame.length - HEADER_SIZE);
+        long messageId = buffer.getLong();
+        int index = buffer.getShort() & 0xFFFF;
+        int count = buffer.getShort() & 0xFFFF;
+        if (count == 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid fragment " + index + " of " + count);
+        }
+        return new Fragment(messageId, index, count, Arrays.copyOfRange(frame, FRAGMENT_OVERHEAD, frame.length));
+    }
+}
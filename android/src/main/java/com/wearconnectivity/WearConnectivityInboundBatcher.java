@@ -0,0 +1,122 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates incoming messages during a batch window and delivers them together,
+ * so a burst of messages starts a single HeadlessJs task instead of one per message.
+ * The batch window is 0 by default, every message is then delivered right away.
+ * A batch is delivered early once it holds maxBatchSize messages or maxBatchBytes of payload,
+ * the task extras travel in a Binder transaction that fails above about 1 MB.
+ * Every batch is delivered on the batcher thread, in the order the messages were added.
+ */
+public class WearConnectivityInboundBatcher {
+    public static final String OPTION_BATCH_WINDOW_MS = "batchWindowMs";
+    public static final String OPTION_MAX_BATCH_SIZE = "maxBatchSize";
+    public static final String OPTION_MAX_BATCH_BYTES = "maxBatchBytes";
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final int DEFAULT_MAX_BATCH_BYTES = 256 * 1024;
+
+    public interface Delivery {
+        void deliver(List<WritableMap> messages);
+    }
+
+    private final Delivery delivery;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private List<WritableMap> pendingMessages = new ArrayList<>();
+    private long pendingBytes;
+    private ScheduledFuture<?> flushTimer;
+    private volatile long batchWindowMs;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private volatile int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+
+    public WearConnectivityInboundBatcher(Delivery delivery) {
+        this.delivery = delivery;
+    }
+
+    public void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        if (options.hasKey(OPTION_MAX_BATCH_SIZE)) {
+            maxBatchSize = Math.max(1, options.getInt(OPTION_MAX_BATCH_SIZE));
+        }
+        if (options.hasKey(OPTION_MAX_BATCH_BYTES)) {
+            maxBatchBytes = Math.max(1, options.getInt(OPTION_MAX_BATCH_BYTES));
+        }
+        if (options.hasKey(OPTION_BATCH_WINDOW_MS)) {
+            batchWindowMs = Math.max(0, (long) options.getDouble(OPTION_BATCH_WINDOW_MS));
+            if (batchWindowMs == 0) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Adds a message whose payload was sizeBytes long.
+     * A message larger than maxBatchBytes is delivered alone.
+     */
+    public synchronized void add(WritableMap message, int sizeBytes) {
+        if (batchWindowMs == 0) {
+            deliver(Collections.singletonList(message));
+            return;
+        }
+        if (!pendingMessages.isEmpty() && pendingBytes + sizeBytes > maxBatchBytes) {
+            deliver(takePendingMessages());
+        }
+        pendingMessages.add(message);
+        pendingBytes += sizeBytes;
+        if (pendingMessages.size() >= maxBatchSize || pendingBytes >= maxBatchBytes) {
+            deliver(takePendingMessages());
+        } else if (pendingMessages.size() == 1) {
+            List<WritableMap> batch = pendingMessages;
+            flushTimer = scheduler.schedule(() -> flush(batch), batchWindowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void flush() {
+        if (!pendingMessages.isEmpty()) {
+            deliver(takePendingMessages());
+        }
+    }
+
+    /**
+     * Returns the pending messages without delivering them.
+     */
+    public synchronized List<WritableMap> drain() {
+        return takePendingMessages();
+    }
+
+    /**
+     * Timer of a batch, does nothing when the batch was already delivered.
+     */
+    private synchronized void flush(List<WritableMap> batch) {
+        if (pendingMessages == batch) {
+            deliver(takePendingMessages());
+        }
+    }
+
+    private void deliver(List<WritableMap> messages) {
+        scheduler.execute(() -> delivery.deliver(messages));
+    }
+
+    private List<WritableMap> takePendingMessages() {
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+        }
+        List<WritableMap> messages = pendingMessages;
+        pendingMessages = new ArrayList<>();
+        pendingBytes = 0;
+        return messages;
+    }
+}
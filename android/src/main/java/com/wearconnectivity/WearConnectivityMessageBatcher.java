@@ -0,0 +1,172 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in batching of outgoing messages.
+ * Messages queued for the same node during the flush window are packed into a single
+ * {@link WearConnectivityFrames#TYPE_BATCH} frame, so a burst costs one MessageClient RPC.
+ * A message sent without batching first flushes the pending batch of its node, so the messages stay in order.
+ */
+public class WearConnectivityMessageBatcher {
+    public static final String OPTION_ENABLED = "enabled";
+    public static final String OPTION_FLUSH_INTERVAL_MS = "flushIntervalMs";
+    public static final String OPTION_MAX_FRAME_BYTES = "maxFrameBytes";
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 20;
+    public static final int DEFAULT_MAX_FRAME_BYTES = 64 * 1024;
+    private static final int MAX_BATCH_ENTRIES = 0xFFFF;
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    /**
+     * Sends a single MessageClient message.
+     */
+    public interface Sender {
+        Task<Integer> send(String nodeId, String path, byte[] data);
+    }
+
+    private static class PendingBatch {
+        final List<WearConnectivityFrames.Entry> entries = new ArrayList<>();
+        final List<TaskCompletionSource<Integer>> completions = new ArrayList<>();
+        int entriesSize;
+        ScheduledFuture<?> flushTimer;
+    }
+
+    private final Sender sender;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, PendingBatch> pendingBatches = new HashMap<>();
+    private volatile boolean enabled;
+    private volatile long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+    private volatile int maxFrameBytes = DEFAULT_MAX_FRAME_BYTES;
+
+    public WearConnectivityMessageBatcher(Sender sender) {
+        this.sender = sender;
+    }
+
+    public void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        if (options.hasKey(OPTION_FLUSH_INTERVAL_MS)) {
+            flushIntervalMs = Math.max(0, (long) options.getDouble(OPTION_FLUSH_INTERVAL_MS));
+        }
+        if (options.hasKey(OPTION_MAX_FRAME_BYTES)) {
+            maxFrameBytes = Math.max(WearConnectivityFrames.getBatchSize(0), options.getInt(OPTION_MAX_FRAME_BYTES));
+        }
+        if (options.hasKey(OPTION_ENABLED)) {
+            enabled = options.getBoolean(OPTION_ENABLED);
+            if (!enabled) {
+                flushAll();
+            }
+        }
+    }
+
+    /**
+     * Queues the message for its node, or sends it right away, after the pending batch of the node,
+     * when batching is disabled or the message alone does not fit in a frame.
+     */
+    public Task<Integer> send(String nodeId, String path, byte[] data) {
+        WearConnectivityFrames.Entry entry = new WearConnectivityFrames.Entry(path, data);
+        int entrySize = entry.getFrameSize();
+        if (!enabled || WearConnectivityFrames.getBatchSize(entrySize) > maxFrameBytes) {
+            flush(nodeId);
+            return sender.send(nodeId, path, data);
+        }
+
+        TaskCompletionSource<Integer> completion = new TaskCompletionSource<>();
+        PendingBatch fullBatch = null;
+        synchronized (pendingBatches) {
+            PendingBatch batch = pendingBatches.get(nodeId);
+            if (batch != null && (batch.entries.size() == MAX_BATCH_ENTRIES
+                    || WearConnectivityFrames.getBatchSize(batch.entriesSize + entrySize) > maxFrameBytes)) {
+                fullBatch = pendingBatches.remove(nodeId);
+                fullBatch.flushTimer.cancel(false);
+                batch = null;
+            }
+            if (batch == null) {
+                PendingBatch newBatch = new PendingBatch();
+                pendingBatches.put(nodeId, newBatch);
+                newBatch.flushTimer = scheduler.schedule(() -> flush(nodeId, newBatch), flushIntervalMs, TimeUnit.MILLISECONDS);
+                batch = newBatch;
+            }
+            batch.entries.add(entry);
+            batch.completions.add(completion);
+            batch.entriesSize += entrySize;
+        }
+        if (fullBatch != null) {
+            sendBatch(nodeId, fullBatch);
+        }
+        return completion.getTask();
+    }
+
+    public void flushAll() {
+        List<String> nodeIds;
+        synchronized (pendingBatches) {
+            nodeIds = new ArrayList<>(pendingBatches.keySet());
+        }
+        for (String nodeId : nodeIds) {
+            flush(nodeId);
+        }
+    }
+
+    /**
+     * Sends the pending batch of nodeId, called before a message is sent outside of the batcher.
+     */
+    public void flush(String nodeId) {
+        PendingBatch batch;
+        synchronized (pendingBatches) {
+            batch = pendingBatches.remove(nodeId);
+        }
+        if (batch != null) {
+            batch.flushTimer.cancel(false);
+            sendBatch(nodeId, batch);
+        }
+    }
+
+    /**
+     * Flush timer of batch, which may already have been sent because it was full or flushed.
+     */
+    private void flush(String nodeId, PendingBatch batch) {
+        synchronized (pendingBatches) {
+            if (pendingBatches.get(nodeId) != batch) {
+                return;
+            }
+            pendingBatches.remove(nodeId);
+        }
+        sendBatch(nodeId, batch);
+    }
+
+    private void sendBatch(String nodeId, PendingBatch batch) {
+        Task<Integer> sendTask;
+        if (batch.entries.size() == 1) {
+            // a single message is sent as is, the frame would only add overhead
+            WearConnectivityFrames.Entry entry = batch.entries.get(0);
+            sendTask = sender.send(nodeId, entry.path, entry.data);
+        } else {
+            byte[] frame = WearConnectivityFrames.packBatch(batch.entries);
+            sendTask = sender.send(nodeId, WearConnectivityFrames.BATCH_PATH, frame);
+        }
+        sendTask.addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+            for (TaskCompletionSource<Integer> completion : batch.completions) {
+                if (task.isSuccessful()) {
+                    completion.trySetResult(task.getResult());
+                } else {
+                    Exception error = task.getException();
+                    completion.trySetException(error != null ? error : new CancellationException("batch send canceled"));
+                }
+            }
+        });
+    }
+}
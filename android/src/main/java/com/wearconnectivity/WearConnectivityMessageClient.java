@@ -3,6 +3,7 @@ package com.wearconnectivity;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -13,86 +14,562 @@ import com.facebook.common.logging.FLog;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.HeadlessJsTaskService;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.gms.wearable.MessageClient;
 import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.Wearable;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class WearConnectivityMessageClient implements MessageClient.OnMessageReceivedListener, LifecycleEventListener {
 
     public static final String START_ACTIVITY_PATH = "/start-activity";
+    // path of the messages sent without a path that are too large to be carried in the path itself
+    public static final String MESSAGE_PATH = "/wear-connectivity/message";
+    // a ping is answered natively with a pong carrying the same payload, without waking JS
+    public static final String PING_PATH = "/wear-connectivity/ping";
+    public static final String PONG_PATH = "/wear-connectivity/pong";
+    public static final String CODEC_PATH = "/wear-connectivity/codec";
+    private static final byte CODEC_FLAG_REPLY = 0x01;
+    public static final String OPTION_ENCODING = "encoding";
+    public static final String ENCODING_JSON = "json";
+    public static final String ENCODING_BINARY = "binary";
+    public static final String ENCODING_AUTO = "auto";
+    public static final String BATCH_KEY = "wearConnectivityBatch";
+    public static final String OPTION_DELIVERY_MODE = "mode";
+    public static final String DELIVERY_AUTO = "auto";
+    public static final String DELIVERY_HEADLESS = "headless";
+    public static final String MESSAGE_EVENT = "message";
+    public static final String REQUEST_KEY = "wearConnectivityRequest";
     private static final String TAG = "WearConnectivityMessageClient";
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
     private final MessageClient messageClient;
     private final ReactApplicationContext reactContext;
+    private final WearConnectivityMessageBatcher batcher;
+    private final WearConnectivityInboundBatcher inboundBatcher = new WearConnectivityInboundBatcher(this::deliverMessages);
+    // orders the foreground check of an incoming message with the host resume
+    private final Object deliveryLock = new Object();
+    private final WearConnectivityCompression compression = new WearConnectivityCompression();
+    private final WearConnectivityFragmenter fragmenter;
+    private final WearConnectivitySendWindow sendWindow;
+    private final WearConnectivityRequests requests = new WearConnectivityRequests();
+    private final WearConnectivityOutbox outbox;
+    private final WearConnectivityRouting routing;
+    private final WearConnectivityNodeRegistry nodeRegistry;
+    private final ScheduledExecutorService outboxScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean isDrainingOutbox = new AtomicBoolean(false);
+    private volatile List<Node> outboxNodes = Collections.emptyList();
+    private ScheduledFuture<?> outboxRetry;
+    private final Set<String> binaryPeers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile String payloadEncoding = ENCODING_JSON;
+    private volatile String deliveryMode = DELIVERY_AUTO;
+    private volatile boolean isHostResumed;
     private boolean isListenerAdded;
 
-    public WearConnectivityMessageClient(ReactApplicationContext context) {
+    public WearConnectivityMessageClient(ReactApplicationContext context, WearConnectivityNodeRegistry nodeRegistry) {
         this.reactContext = context;
+        this.nodeRegistry = nodeRegistry;
+        this.routing = new WearConnectivityRouting(nodeRegistry);
         this.messageClient = Wearable.getMessageClient(context);
+        this.outbox = new WearConnectivityOutbox(new File(context.getFilesDir(), WearConnectivityOutbox.FILE_NAME));
+        this.fragmenter = new WearConnectivityFragmenter(messageClient::sendMessage);
+        // the window sits above the fragmenter, a fragmented message takes a single slot and is never sent in part
+        this.sendWindow = new WearConnectivitySendWindow(
+                (nodeId, path, data) -> fragmenter.send(nodeId, path, compression.compress(data)));
+        this.batcher = new WearConnectivityMessageBatcher(sendWindow);
+        sendWindow.setListener(state -> {
+            if (reactContext.hasActiveReactInstance()) {
+                reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(WearConnectivitySendWindow.WINDOW_EVENT, state);
+            }
+        });
         messageClient.addListener(this);
         context.addLifecycleEventListener(this);
+        WearConnectivityPathRouter router = WearConnectivityPathRouter.getInstance();
+        // 在 WearableListenerService 监听
+        router.register(START_ACTIVITY_PATH, (sourceNodeId, path, payload, responder) -> true);
+        router.register(PING_PATH, (sourceNodeId, path, payload, responder) -> {
+            if (responder != null) {
+                responder.respond(payload);
+            } else {
+                messageClient.sendMessage(sourceNodeId, PONG_PATH, payload);
+            }
+            return true;
+        });
+        router.register(CODEC_PATH, (sourceNodeId, path, payload, responder) -> {
+            onCodecHello(sourceNodeId, payload);
+            return true;
+        });
     }
 
     /**
-     * Sends a message to the first nearby node among the provided connectedNodes.
-     * If no nearby node is found, it invokes the error callback.
+     * Sends a message to every nearby node among the provided connectedNodes, or to the best one in 'best' routing mode.
+     * The callbacks are invoked once all the sends completed, without blocking the caller.
+     * If no nearby node is found, it invokes the error callback, unless the message was queued in the outbox.
      */
     public void sendMessage(String path, ReadableMap messageData, List<Node> connectedNodes, Callback replyCb, Callback errorCb) {
-        final List<String> messages = new ArrayList<>();
-        boolean hasNearbyNode = false;
-        final boolean[] hasError = {false};
-        CountDownLatch countDownLatch = new CountDownLatch(connectedNodes.size());
+        Task<List<SendResult>> sendTask = sendMessageAsync(path, messageData, connectedNodes);
+        if (sendTask == null) {
+            errorCb.invoke("No nearby node found");
+            return;
+        }
+        sendTask.addOnSuccessListener(DIRECT_EXECUTOR, results -> {
+            if (results.isEmpty()) {
+                replyCb.invoke("No nearby node found, message queued in the outbox");
+                return;
+            }
+            List<String> messages = new ArrayList<>(results.size());
+            boolean hasError = false;
+            for (SendResult result : results) {
+                hasError |= !result.isSuccess();
+                messages.add(result.toMessage());
+            }
+            String message = String.join("\n", messages);
+            if (hasError) {
+                errorCb.invoke(message);
+            } else {
+                replyCb.invoke(message);
+            }
+        });
+    }
+
+    /**
+     * Sends a message to every nearby node and composes the per-node tasks.
+     * The returned task always succeeds with one result per target node,
+     * or is null when none of the connectedNodes is nearby.
+     * With the outbox enabled, the failed sends are queued and the task succeeds
+     * with no result when the message was queued because no node is nearby.
+     */
+    public Task<List<SendResult>> sendMessageAsync(String path, ReadableMap messageData, List<Node> connectedNodes) {
+        final List<Node> nearbyNodes = routing.getTargets(connectedNodes);
+        final List<Task<Integer>> sendTasks = new ArrayList<>(nearbyNodes.size());
+        for (Node node : nearbyNodes) {
+            sendTasks.add(sendMessageToClient(path, messageData, node));
+        }
+        if (nearbyNodes.isEmpty()) {
+            if (enqueue(null, path, messageData)) {
+                return Tasks.forResult(Collections.emptyList());
+            }
+            return null;
+        }
+        return Tasks.whenAllComplete(sendTasks).continueWith(DIRECT_EXECUTOR, allTasks -> {
+            List<SendResult> results = new ArrayList<>(nearbyNodes.size());
+            for (int i = 0; i < nearbyNodes.size(); i++) {
+                Task<Integer> sendTask = sendTasks.get(i);
+                Node node = nearbyNodes.get(i);
+                if (sendTask.isSuccessful()) {
+                    results.add(new SendResult(node, sendTask.getResult(), null, false));
+                } else {
+                    boolean isQueued = enqueue(node.getId(), path, messageData);
+                    results.add(new SendResult(node, null, sendTask.getException(), isQueued));
+                }
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Same as {@link #sendMessageAsync} but resolves the promise with an array of per-node results,
+     * empty when the message was queued in the outbox.
+     */
+    public void sendMessageAsync(String path, ReadableMap messageData, List<Node> connectedNodes, Promise promise) {
+        Task<List<SendResult>> sendTask = sendMessageAsync(path, messageData, connectedNodes);
+        if (sendTask == null) {
+            promise.reject("E_NO_NEARBY_NODES", "No nearby node found");
+            return;
+        }
+        sendTask.addOnSuccessListener(DIRECT_EXECUTOR, results -> {
+            WritableArray array = Arguments.createArray();
+            for (SendResult result : results) {
+                array.pushMap(result.toWritableMap());
+            }
+            promise.resolve(array);
+        });
+    }
+
+    /**
+     * Sends a message to a single node and resolves the promise with its { nodeId, displayName, success, queued, requestId, error } result.
+     * With the outbox enabled, a message to a node that is not nearby, or that failed, is queued for that node.
+     */
+    public void sendMessageToNode(String nodeId, String path, ReadableMap messageData, List<Node> connectedNodes, Promise promise) {
+        Node target = null;
         for (Node node : connectedNodes) {
-            if (node.isNearby()) {
-                hasNearbyNode = true;
-                sendMessageToClient(path, messageData, node, args -> {
-                    messages.add((String) args[0]);
-                    countDownLatch.countDown();
-                }, args -> {
-                    hasError[0] = true;
-                    messages.add((String) args[0]);
-                    countDownLatch.countDown();
-                });
+            if (node.getId().equals(nodeId)) {
+                target = node;
+                break;
+            }
+        }
+        if (target == null || !target.isNearby()) {
+            String error = target == null ? "Node " + nodeId + " is not connected" : "Node " + nodeId + " is not nearby";
+            if (enqueue(nodeId, path, messageData)) {
+                String displayName = target != null ? target.getDisplayName() : null;
+                promise.resolve(new SendResult(nodeId, displayName, null, new IllegalStateException(error), true).toWritableMap());
             } else {
-                countDownLatch.countDown();
+                promise.reject(target == null ? "E_NODE_NOT_CONNECTED" : "E_NODE_NOT_NEARBY", error);
             }
+            return;
         }
+        Node node = target;
+        sendMessageToClient(path, messageData, node).addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+            if (task.isSuccessful()) {
+                promise.resolve(new SendResult(node, task.getResult(), null, false).toWritableMap());
+            } else {
+                boolean isQueued = enqueue(nodeId, path, messageData);
+                promise.resolve(new SendResult(node, null, task.getException(), isQueued).toWritableMap());
+            }
+        });
+    }
+
+    /**
+     * Sends a request to the first nearby node, or to the best one in 'best' routing mode,
+     * and resolves the promise with its response.
+     * The request is tagged with a correlation id, so many requests can be in flight at once.
+     * Rejects with E_TIMEOUT when no response arrives within timeoutMs.
+     */
+    public void sendRequest(String path, ReadableMap messageData, long timeoutMs, List<Node> connectedNodes, Promise promise) {
+        if (TextUtils.isEmpty(path)) {
+            promise.reject("E_INVALID_PATH", "A request needs a path");
+            return;
+        }
+        List<Node> targets = routing.getTargets(connectedNodes);
+        Node target = targets.isEmpty() ? null : targets.get(0);
+        if (target == null) {
+            promise.reject("E_NO_NEARBY_NODES", "No nearby node found");
+            return;
+        }
+
+        String nodeId = target.getId();
+        long correlationId = requests.nextCorrelationId();
+        Task<byte[]> responseTask = requests.register(correlationId, nodeId, timeoutMs);
+        responseTask.addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+            if (!task.isSuccessful()) {
+                Exception error = task.getException();
+                String code = error instanceof TimeoutException ? "E_TIMEOUT" : "E_SEND_FAILED";
+                promise.reject(code, String.valueOf(error), error);
+                return;
+            }
+            try {
+                WritableMap response = decodePayload(task.getResult());
+                promise.resolve(response != null ? response : Arguments.createMap());
+            } catch (IllegalArgumentException e) {
+                promise.reject("E_INVALID_RESPONSE", e.getMessage(), e);
+            }
+        });
+        try {
+            byte[] frame = WearConnectivityFrames.packCorrelated(WearConnectivityFrames.TYPE_REQUEST, correlationId,
+                    encodePayload(messageData, nodeId));
+            WearConnectivitySendScheduler scheduler = WearConnectivitySendScheduler.getInstance();
+            Task<Integer> sendTask = scheduler.submit(scheduler.getLane(path, WearConnectivitySendScheduler.LANE_CONTROL),
+                    () -> batcher.send(nodeId, path, frame));
+            WearConnectivityMetrics.getInstance().trackSend(path, frame.length, trackNode(nodeId, sendTask))
+                    .addOnFailureListener(DIRECT_EXECUTOR, e -> requests.fail(correlationId, e));
+        } catch (Exception e) {
+            requests.fail(correlationId, e);
+        }
+    }
+
+    /**
+     * Answers a request received from nodeId, requestId is the id delivered under {@link #REQUEST_KEY}.
+     */
+    public void sendResponse(String nodeId, String path, String requestId, ReadableMap messageData, Promise promise) {
         try {
-            countDownLatch.await();
-        } catch (InterruptedException e) {
-            errorCb.invoke("exception when await countDownLatch: " + e);
+            sendResponse(nodeId, path, Long.parseLong(requestId), encodePayload(messageData, nodeId))
+                    .addOnSuccessListener(DIRECT_EXECUTOR, promise::resolve)
+                    .addOnFailureListener(DIRECT_EXECUTOR, e -> promise.reject("E_SEND_FAILED", e.getMessage(), e));
+        } catch (Exception e) {
+            promise.reject("E_SEND_FAILED", e.getMessage(), e);
+        }
+    }
+
+    private Task<Integer> sendResponse(String nodeId, String path, long correlationId, byte[] payload) {
+        byte[] frame = WearConnectivityFrames.packCorrelated(WearConnectivityFrames.TYPE_RESPONSE, correlationId, payload);
+        WearConnectivitySendScheduler scheduler = WearConnectivitySendScheduler.getInstance();
+        Task<Integer> sendTask = scheduler.submit(scheduler.getLane(path, WearConnectivitySendScheduler.LANE_CONTROL),
+                () -> batcher.send(nodeId, path, frame));
+        return WearConnectivityMetrics.getInstance().trackSend(path, frame.length, sendTask);
+    }
+
+    public WritableMap getRequestStats() {
+        return requests.getStats();
+    }
+
+    /**
+     * Selects the nodes the messages are sent to, e.g. { mode: 'best', capability: 'my_watch_app' }.
+     */
+    public void configureRouting(ReadableMap options) {
+        routing.configure(options);
+    }
+
+    public WritableMap getRoutingStats() {
+        return routing.getStats();
+    }
+
+    /**
+     * Bounds the MessageClient sends in flight to every node, e.g. { enabled: true, maxInFlight: 16, policy: 'dropOldest' }.
+     */
+    public void configureSendWindow(ReadableMap options) {
+        sendWindow.configure(options);
+    }
+
+    public WritableMap getSendWindowStats() {
+        return sendWindow.getStats();
+    }
+
+    /**
+     * Enables or tunes the outbox of the messages that could not be sent,
+     * e.g. { enabled: true, maxBytes: 1048576, ttlMs: 86400000, maxBatchSize: 20 }.
+     */
+    public void configureOutbox(ReadableMap options) throws IOException {
+        outbox.configure(options);
+    }
+
+    public boolean isOutboxEnabled() {
+        return outbox.isEnabled();
+    }
+
+    public WritableMap getOutboxStats() {
+        return outbox.getStats();
+    }
+
+    /**
+     * Replays the queued messages to the nearby connectedNodes, maxBatchSize messages at a time.
+     * Called whenever the node registry reports a change, and again once the messages that failed are due.
+     */
+    public void drainOutbox(List<Node> connectedNodes) {
+        outboxNodes = connectedNodes;
+        if (outbox.isEnabled() && isDrainingOutbox.compareAndSet(false, true)) {
+            drainNextBatch();
+        }
+    }
+
+    private void drainNextBatch() {
+        List<Node> nearbyNodes = new ArrayList<>();
+        Set<String> nearbyNodeIds = new HashSet<>();
+        for (Node node : outboxNodes) {
+            if (node.isNearby()) {
+                nearbyNodes.add(node);
+                nearbyNodeIds.add(node.getId());
+            }
+        }
+        List<WearConnectivityOutbox.Entry> entries = outbox.takeDue(nearbyNodeIds);
+        if (entries.isEmpty()) {
+            isDrainingOutbox.set(false);
+            scheduleOutboxRetry();
             return;
         }
+        List<Task<Void>> replayTasks = new ArrayList<>(entries.size());
+        for (WearConnectivityOutbox.Entry entry : entries) {
+            replayTasks.add(replay(entry, nearbyNodes));
+        }
+        // the next batch is only taken once this one completed, on the scheduler so failures do not recurse
+        Tasks.whenAllComplete(replayTasks).addOnCompleteListener(outboxScheduler, allTasks -> drainNextBatch());
+    }
 
-        // 等待所有回调完成再执行下面的代码
-        if (hasNearbyNode) {
-            String message = String.join("\n", messages);
-            if (hasError[0]) {
-                errorCb.invoke(message);
+    private Task<Void> replay(WearConnectivityOutbox.Entry entry, List<Node> nearbyNodes) {
+        WritableMap messageData;
+        try {
+            byte[] payload = outbox.getPayload(entry);
+            messageData = payload != null ? WearConnectivityCodec.decode(payload) : null;
+        } catch (IllegalArgumentException e) {
+            messageData = null;
+        }
+        if (messageData == null) {
+            outbox.complete(entry);
+            return Tasks.forResult(null);
+        }
+        final List<Node> targets = new ArrayList<>();
+        if (entry.getNodeId() == null) {
+            targets.addAll(routing.getTargets(nearbyNodes));
+        } else {
+            for (Node node : nearbyNodes) {
+                if (entry.getNodeId().equals(node.getId())) {
+                    targets.add(node);
+                }
+            }
+        }
+        final List<Task<Integer>> sendTasks = new ArrayList<>(targets.size());
+        for (Node node : targets) {
+            sendTasks.add(sendMessageToClient(entry.getPath(), messageData, node));
+        }
+        return Tasks.whenAllComplete(sendTasks).continueWith(DIRECT_EXECUTOR, allTasks -> {
+            List<String> failedNodeIds = new ArrayList<>();
+            for (int i = 0; i < targets.size(); i++) {
+                if (!sendTasks.get(i).isSuccessful()) {
+                    failedNodeIds.add(targets.get(i).getId());
+                }
+            }
+            if (failedNodeIds.isEmpty()) {
+                outbox.complete(entry);
+            } else if (failedNodeIds.size() == targets.size()) {
+                outbox.retry(entry);
             } else {
-                replyCb.invoke(message);
+                outbox.split(entry, failedNodeIds);
             }
-        } else {
-            errorCb.invoke("No nearby node found");
+            return null;
+        });
+    }
+
+    /**
+     * Queues a message that could not be sent, nodeId is null when no node was nearby.
+     */
+    private boolean enqueue(String nodeId, String path, ReadableMap messageData) {
+        if (!outbox.isEnabled()) {
+            return false;
+        }
+        boolean isQueued;
+        try {
+            isQueued = outbox.add(nodeId, path, WearConnectivityCodec.encode(messageData));
+        } catch (IllegalArgumentException e) {
+            FLog.w(TAG, TAG + " can not queue the message on path: " + path + ", error: " + e);
+            return false;
+        }
+        if (isQueued && nodeId != null) {
+            scheduleOutboxRetry();
+        }
+        return isQueued;
+    }
+
+    /**
+     * Drains the outbox again once the next failed message is due, unless a drain is running.
+     */
+    private synchronized void scheduleOutboxRetry() {
+        long delayMs = outbox.getNextAttemptDelayMs();
+        if (delayMs < 0) {
+            return;
+        }
+        if (outboxRetry != null) {
+            outboxRetry.cancel(false);
+        }
+        outboxRetry = outboxScheduler.schedule(() -> drainOutbox(outboxNodes), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enables or tunes batching, e.g. { enabled: true, flushIntervalMs: 20, maxFrameBytes: 65536 }.
+     */
+    public void configureBatching(ReadableMap options) {
+        batcher.configure(options);
+    }
+
+    /**
+     * Selects the payload encoding, e.g. { encoding: 'auto' }.
+     * 'auto' sends binary payloads only to nodes that answered a codec hello or sent a binary payload.
+     */
+    public void configureCodec(ReadableMap options) {
+        if (options == null || !options.hasKey(OPTION_ENCODING)) {
+            return;
+        }
+        String encoding = options.getString(OPTION_ENCODING);
+        if (!ENCODING_JSON.equals(encoding) && !ENCODING_BINARY.equals(encoding) && !ENCODING_AUTO.equals(encoding)) {
+            throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        }
+        payloadEncoding = encoding;
+    }
+
+    /**
+     * In 'auto' encoding, sends a codec hello to the nearby nodes not known to decode binary payloads.
+     * The nodes that are no longer connected are forgotten, they are asked again when they come back.
+     */
+    public void negotiateCodec(List<Node> connectedNodes) {
+        Set<String> connectedNodeIds = new HashSet<>();
+        for (Node node : connectedNodes) {
+            connectedNodeIds.add(node.getId());
+        }
+        binaryPeers.retainAll(connectedNodeIds);
+        if (!ENCODING_AUTO.equals(payloadEncoding)) {
+            return;
+        }
+        for (Node node : connectedNodes) {
+            if (node.isNearby() && !binaryPeers.contains(node.getId())) {
+                messageClient.sendMessage(node.getId(), CODEC_PATH, new byte[]{WearConnectivityCodec.VERSION, CODEC_FLAG_REPLY});
+            }
+        }
+    }
+
+    /**
+     * A codec hello is [codec version, flags]. Every node running this library decodes binary payloads,
+     * so a hello asking for a reply is answered whatever the configured encoding.
+     * JSON-only peers never answer and keep receiving JSON.
+     */
+    private void onCodecHello(String sourceNodeId, byte[] payload) {
+        if (payload == null || payload.length < 2 || payload[0] < 1) {
+            return;
+        }
+        if (binaryPeers.add(sourceNodeId)) {
+            Log.d(TAG, "node " + sourceNodeId + " supports binary payloads version " + payload[0]);
+        }
+        if ((payload[1] & CODEC_FLAG_REPLY) != 0) {
+            messageClient.sendMessage(sourceNodeId, CODEC_PATH, new byte[]{WearConnectivityCodec.VERSION, 0});
+        }
+    }
+
+    /**
+     * Enables or tunes compression, e.g. { enabled: true, minSizeBytes: 256, level: 6 }.
+     */
+    public void configureCompression(ReadableMap options) {
+        compression.configure(options);
+    }
+
+    public WritableMap getCompressionStats() {
+        return compression.getStats();
+    }
+
+    /**
+     * Enables or tunes fragmentation of large payloads,
+     * e.g. { enabled: true, maxMessageBytes: 102400, maxBufferedBytes: 4194304, reassemblyTimeoutMs: 30000 }.
+     */
+    public void configureFragmentation(ReadableMap options) {
+        fragmenter.configure(options);
+    }
+
+    public WritableMap getFragmentationStats() {
+        return fragmenter.getStats();
+    }
+
+    /**
+     * Delivers incoming messages in batches, e.g. { batchWindowMs: 50, maxBatchSize: 100, maxBatchBytes: 262144 }.
+     */
+    public void configureInboundBatching(ReadableMap options) {
+        inboundBatcher.configure(options);
+    }
+
+    /**
+     * Selects how incoming messages reach JS, e.g. { mode: 'auto' }.
+     * In 'auto' mode, messages are emitted directly while the app is in the foreground
+     * and only start a HeadlessJs task in the background. 'headless' always starts the task.
+     */
+    public void configureDelivery(ReadableMap options) {
+        if (options == null || !options.hasKey(OPTION_DELIVERY_MODE)) {
+            return;
+        }
+        String mode = options.getString(OPTION_DELIVERY_MODE);
+        if (!DELIVERY_AUTO.equals(mode) && !DELIVERY_HEADLESS.equals(mode)) {
+            throw new IllegalArgumentException("Unknown delivery mode: " + mode);
         }
+        deliveryMode = mode;
     }
 
     /**
@@ -102,31 +579,181 @@ public class WearConnectivityMessageClient implements MessageClient.OnMessageRec
     @RequiresApi(api = Build.VERSION_CODES.O)
     @Override
     public void onMessageReceived(@NonNull MessageEvent messageEvent) {
+        byte[] data = messageEvent.getData();
         String path = messageEvent.getPath();
-        // 在 WearableListenerService 监听
-        if (path.startsWith(START_ACTIVITY_PATH)) {
+        nodeRegistry.onNodeSeen(messageEvent.getSourceNodeId());
+        try {
+            if (WearConnectivityFrames.isFrame(data, WearConnectivityFrames.TYPE_FRAGMENT)) {
+                data = fragmenter.reassemble(messageEvent.getSourceNodeId(), data);
+                if (data == null) {
+                    return;
+                }
+            }
+            data = compression.decompress(data);
+        } catch (IllegalArgumentException e) {
+            FLog.w(TAG, TAG + " onMessageReceived malformed frame: " + e);
+            return;
+        }
+        if (WearConnectivityFrames.isFrame(data, WearConnectivityFrames.TYPE_BATCH)) {
+            List<WearConnectivityFrames.Entry> entries;
+            try {
+                entries = WearConnectivityFrames.unpackBatch(data);
+            } catch (RuntimeException e) {
+                FLog.w(TAG, TAG + " onMessageReceived malformed batch frame: " + e);
+                return;
+            }
+            for (WearConnectivityFrames.Entry entry : entries) {
+                dispatchMessage(messageEvent.getSourceNodeId(), entry.path, entry.data);
+            }
+            return;
+        }
+        dispatchMessage(messageEvent.getSourceNodeId(), path, data);
+    }
+
+    /**
+     * Legacy messages carry their JSON in the path, they are counted under MESSAGE_PATH.
+     */
+    private static String getMetricsPath(String path) {
+        return path != null && path.startsWith("/") ? path : MESSAGE_PATH;
+    }
+
+    /**
+     * Dispatches a message once reassembled, decompressed and unpacked from its batch,
+     * it is counted in the received metrics of its own path.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void dispatchMessage(String sourceNodeId, String path, byte[] payload) {
+        WearConnectivityMetrics.getInstance().recordReceived(getMetricsPath(path), payload != null ? payload.length : 0);
+        boolean isCorrelated = WearConnectivityFrames.isCorrelated(payload);
+        byte[] body = isCorrelated ? WearConnectivityFrames.getCorrelatedPayload(payload) : payload;
+        // only a binary map proves the peer decodes binary payloads, batches or fragments do not
+        if (WearConnectivityCodec.isEncoded(body) && binaryPeers.add(sourceNodeId)) {
+            Log.d(TAG, "node " + sourceNodeId + " supports binary payloads");
+        }
+        if (isCorrelated && WearConnectivityFrames.isFrame(payload, WearConnectivityFrames.TYPE_RESPONSE)) {
+            long correlationId = WearConnectivityFrames.getCorrelationId(payload);
+            if (!requests.complete(correlationId, sourceNodeId, body)) {
+                Log.d(TAG, "dropping response " + correlationId + " from " + sourceNodeId + ", the request is not pending");
+            }
+            return;
+        }
+        // native handlers run before any decoding
+        WearConnectivityPathRouter.Responder responder = null;
+        if (isCorrelated) {
+            long correlationId = WearConnectivityFrames.getCorrelationId(payload);
+            responder = response -> sendResponse(sourceNodeId, path, correlationId, response)
+                    .addOnFailureListener(DIRECT_EXECUTOR, e -> FLog.w(TAG, "response to " + sourceNodeId + " failed: " + e));
+        }
+        if (WearConnectivityPathRouter.getInstance().route(sourceNodeId, path, body, responder)) {
             return;
         }
+        WritableMap request = null;
+        if (isCorrelated) {
+            long correlationId = WearConnectivityFrames.getCorrelationId(payload);
+            request = Arguments.createMap();
+            request.putString("id", String.valueOf(correlationId));
+            request.putString("nodeId", sourceNodeId);
+            request.putString("path", path);
+            payload = body;
+        }
 
         try {
-            Intent service = new Intent(reactContext, WearConnectivityTask.class);
-            String data = new String(messageEvent.getData());
-            if (!TextUtils.isEmpty(data)) {
-                JSONObject jsonObject = new JSONObject(data);
-                WritableMap messageAsWritableMap = (WritableMap) JSONArguments.fromJSONObject(jsonObject);
-                FLog.w(TAG, TAG + " onMessageReceived message: " + messageAsWritableMap);
-                Bundle bundle = Arguments.toBundle(messageAsWritableMap);
-                service.putExtras(bundle);
+            WritableMap messageAsWritableMap = decodePayload(payload);
+            if (request != null) {
+                if (messageAsWritableMap == null) {
+                    messageAsWritableMap = Arguments.createMap();
+                }
+                messageAsWritableMap.putMap(REQUEST_KEY, request);
             }
-            reactContext.startForegroundService(service);
-            HeadlessJsTaskService.acquireWakeLockNow(reactContext);
-        } catch (JSONException e) {
+            synchronized (deliveryLock) {
+                if (isForeground()) {
+                    emitMessage(messageAsWritableMap != null ? messageAsWritableMap : Arguments.createMap());
+                    return;
+                }
+                WearConnectivityMetrics.getInstance().recordHeadlessMessage(getMetricsPath(path));
+                if (messageAsWritableMap == null) {
+                    startHeadlessTask(null);
+                    return;
+                }
+                inboundBatcher.add(messageAsWritableMap, payload.length);
+            }
+        } catch (IllegalArgumentException e) {
             FLog.w(TAG, TAG + " onMessageReceived with path: " + path + " failed with error: " + e);
         }
     }
 
+    /**
+     * True when JS is running in a resumed host, messages can then skip the HeadlessJs service.
+     */
+    private boolean isForeground() {
+        return isHostResumed && DELIVERY_AUTO.equals(deliveryMode) && reactContext.hasActiveReactInstance();
+    }
+
+    private void emitMessage(WritableMap message) {
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(MESSAGE_EVENT, message);
+    }
+
+    /**
+     * Starts a single HeadlessJs task for the messages.
+     * More than one message is delivered as { [BATCH_KEY]: messages }.
+     */
+    private void deliverMessages(List<WritableMap> messages) {
+        if (messages.size() == 1) {
+            startHeadlessTask(Arguments.toBundle(messages.get(0)));
+            return;
+        }
+        WritableArray array = Arguments.createArray();
+        for (WritableMap message : messages) {
+            array.pushMap(message);
+        }
+        WritableMap batch = Arguments.createMap();
+        batch.putArray(BATCH_KEY, array);
+        startHeadlessTask(Arguments.toBundle(batch));
+    }
+
+    private void startHeadlessTask(Bundle extras) {
+        WearConnectivityMetrics.getInstance().recordHeadlessTaskStart();
+        Intent service = new Intent(reactContext, WearConnectivityTask.class);
+        if (extras != null) {
+            service.putExtras(extras);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            reactContext.startForegroundService(service);
+        } else {
+            reactContext.startService(service);
+        }
+        HeadlessJsTaskService.acquireWakeLockNow(reactContext);
+    }
+
+    /**
+     * Decodes a binary or JSON payload, the encoding is detected from the first byte.
+     * Returns null for an empty payload.
+     */
+    private WritableMap decodePayload(byte[] payload) {
+        if (WearConnectivityCodec.isEncoded(payload)) {
+            return WearConnectivityCodec.decode(payload);
+        }
+        if (payload == null || payload.length == 0) {
+            return null;
+        }
+        return JSONArguments.fromJson(payload);
+    }
+
     @Override
     public void onHostResume() {
+        synchronized (deliveryLock) {
+            isHostResumed = true;
+            if (isForeground()) {
+                // the messages still in the batch window are emitted before the ones received from now on,
+                // batches already handed to a HeadlessJs task may reach JS after them
+                for (WritableMap message : inboundBatcher.drain()) {
+                    emitMessage(message);
+                }
+            } else {
+                inboundBatcher.flush();
+            }
+        }
         if (messageClient != null && !isListenerAdded) {
             Log.d(TAG, "Adding listener on host resume");
             messageClient.addListener(this);
@@ -136,11 +763,13 @@ public class WearConnectivityMessageClient implements MessageClient.OnMessageRec
 
     @Override
     public void onHostPause() {
+        isHostResumed = false;
         Log.d(TAG, "onHostPause: leaving listener active for background events");
     }
 
     @Override
     public void onHostDestroy() {
+        isHostResumed = false;
         if (messageClient != null && isListenerAdded) {
             Log.d(TAG, "Removing listener on host destroy");
             messageClient.removeListener(this);
@@ -151,27 +780,121 @@ public class WearConnectivityMessageClient implements MessageClient.OnMessageRec
     /**
      * Helper method that sends a message to a specific node.
      */
-    private void sendMessageToClient(String path, ReadableMap messageData, Node node, Callback replyCb, Callback errorCb) {
-        String nodeString = node.toString();
-        OnSuccessListener<Object> onSuccessListener = object -> replyCb.invoke("message sent to client with node: " + nodeString + ", requestId: " + object.toString());
-        OnFailureListener onFailureListener = error -> errorCb.invoke("message sending failed: " + error.toString());
+    private Task<Integer> sendMessageToClient(String path, ReadableMap messageData, Node node) {
+        WearConnectivityMetrics metrics = WearConnectivityMetrics.getInstance();
+        WearConnectivitySendScheduler scheduler = WearConnectivitySendScheduler.getInstance();
+        String metricsPath = getMetricsPath(path);
         try {
-            JSONObject messageJSON = new JSONObject(messageData.toHashMap());
-            String payloadString = messageJSON.toString();
-            String resultPath;
-            byte[] resultPayload = null;
             if (TextUtils.isEmpty(path)) {
-                resultPath = payloadString;
-            } else {
-                resultPath = path;
-                resultPayload = payloadString.getBytes(StandardCharsets.UTF_8);
+                String payloadString = JSONArguments.toJson(messageData);
+                byte[] payload = payloadString.getBytes(StandardCharsets.UTF_8);
+                String lane = scheduler.getLane(MESSAGE_PATH, getDefaultLane(payload));
+                if (fragmenter.isEnabled() && payload.length > fragmenter.getMaxMessageBytes()) {
+                    return metrics.trackSend(metricsPath, payload.length, trackNode(node.getId(),
+                            scheduler.submit(lane, () -> batcher.send(node.getId(), MESSAGE_PATH, payload))));
+                }
+                return metrics.trackSend(metricsPath, payload.length, trackNode(node.getId(),
+                        scheduler.submit(lane, () -> {
+                            // the path-less message skips the batcher, send the batched messages before it
+                            batcher.flush(node.getId());
+                            return sendWindow.submit(node.getId(), () -> messageClient.sendMessage(node.getId(), payloadString, null));
+                        })));
             }
-            Task<Integer> sendTask = messageClient.sendMessage(node.getId(), resultPath, resultPayload);
-//            Task<Integer> sendTask = messageClient.sendMessage(node.getId(), messageJSON.toString(), null);
-            sendTask.addOnSuccessListener(onSuccessListener);
-            sendTask.addOnFailureListener(onFailureListener);
+            byte[] payload = encodePayload(messageData, node.getId());
+            return metrics.trackSend(metricsPath, payload.length, trackNode(node.getId(),
+                    scheduler.submit(scheduler.getLane(path, getDefaultLane(payload)), () -> batcher.send(node.getId(), path, payload))));
         } catch (Exception e) {
-            errorCb.invoke("sendMessage failed: " + e);
+            metrics.recordSend(metricsPath, 0, false, 0);
+            return Tasks.forException(e);
+        }
+    }
+
+    /**
+     * Feeds the latency of the send to the routing, to rank the nodes in 'best' mode,
+     * and the failures to the node registry, to notice the disconnected nodes.
+     */
+    private <T> Task<T> trackNode(String nodeId, Task<T> sendTask) {
+        long start = SystemClock.elapsedRealtime();
+        sendTask.addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+            routing.recordSend(nodeId, task.isSuccessful(), SystemClock.elapsedRealtime() - start);
+            if (!task.isSuccessful()) {
+                nodeRegistry.onSendFailed(nodeId, task.getException());
+            }
+        });
+        return sendTask;
+    }
+
+    /**
+     * Messages that are fragmented go in the bulk lane.
+     */
+    private String getDefaultLane(byte[] payload) {
+        if (fragmenter.isEnabled() && payload.length > fragmenter.getMaxMessageBytes()) {
+            return WearConnectivitySendScheduler.LANE_BULK;
+        }
+        return WearConnectivitySendScheduler.LANE_NORMAL;
+    }
+
+    private byte[] encodePayload(ReadableMap messageData, String nodeId) {
+        String encoding = payloadEncoding;
+        if (ENCODING_BINARY.equals(encoding) || (ENCODING_AUTO.equals(encoding) && binaryPeers.contains(nodeId))) {
+            return WearConnectivityCodec.encode(messageData);
+        }
+        return JSONArguments.toJson(messageData).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Outcome of sending a message to a single node.
+     */
+    public static class SendResult {
+        private final String nodeId;
+        private final String displayName;
+        private final Integer requestId;
+        private final Exception error;
+        private final boolean isQueued;
+
+        SendResult(Node node, Integer requestId, Exception error, boolean isQueued) {
+            this(node.getId(), node.getDisplayName(), requestId, error, isQueued);
+        }
+
+        SendResult(String nodeId, String displayName, Integer requestId, Exception error, boolean isQueued) {
+            this.nodeId = nodeId;
+            this.displayName = displayName;
+            this.requestId = requestId;
+            this.error = error;
+            this.isQueued = isQueued;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        String toMessage() {
+            if (isSuccess()) {
+                return "message sent to client with node: " + displayName + " (" + nodeId + "), requestId: " + requestId;
+            }
+            if (isQueued) {
+                return "message sending failed: " + error + ", message queued in the outbox";
+            }
+            return "message sending failed: " + error;
+        }
+
+        WritableMap toWritableMap() {
+            WritableMap map = Arguments.createMap();
+            map.putString("nodeId", nodeId);
+            map.putString("displayName", displayName);
+            map.putBoolean("success", isSuccess());
+            map.putBoolean("queued", isQueued);
+            if (isSuccess()) {
+                map.putInt("requestId", requestId);
+                map.putNull("error");
+            } else {
+                map.putString("error", error.toString());
+            }
+            return map;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.tasks.Task;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-path metrics of the messages, DataItems and files sent and received.
+ * Counters and the fixed-bucket latency histograms are atomics, recording never takes a lock.
+ * At most {@link #MAX_PATHS} paths are tracked, the others are counted under {@link #OTHER_PATHS}.
+ */
+public final class WearConnectivityMetrics {
+    public static final String OPTION_SNAPSHOT_INTERVAL_MS = "snapshotIntervalMs";
+    public static final String METRICS_EVENT = "MetricsEvent";
+    public static final int MAX_PATHS = 256;
+    public static final String OTHER_PATHS = "*";
+    // upper bounds of the latency buckets, the last bucket counts the slower sends
+    static final long[] LATENCY_BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    /**
+     * Receives the periodic snapshots configured with {@link #OPTION_SNAPSHOT_INTERVAL_MS}.
+     */
+    public interface SnapshotListener {
+        void onSnapshot(WritableMap metrics);
+    }
+
+    static final class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+
+        void record(long ms) {
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_MS.length && ms > LATENCY_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sumMs.addAndGet(ms);
+            long max = maxMs.get();
+            while (ms > max && !maxMs.compareAndSet(max, ms)) {
+                max = maxMs.get();
+            }
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile, or the max for the last bucket.
+         */
+        private long percentile(long[] snapshot, long total, double percentile) {
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return LATENCY_BUCKETS_MS[i];
+                }
+            }
+            return maxMs.get();
+        }
+
+        WritableMap toWritableMap() {
+            long[] snapshot = new long[counts.length()];
+            long total = 0;
+            WritableArray buckets = Arguments.createArray();
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+                buckets.pushDouble(snapshot[i]);
+            }
+            WritableArray bounds = Arguments.createArray();
+            for (long bound : LATENCY_BUCKETS_MS) {
+                bounds.pushDouble(bound);
+            }
+            WritableMap map = Arguments.createMap();
+            map.putArray("bucketsMs", bounds);
+            map.putArray("counts", buckets);
+            map.putDouble("count", total);
+            map.putDouble("sumMs", sumMs.get());
+            map.putDouble("maxMs", maxMs.get());
+            map.putDouble("p50Ms", total > 0 ? percentile(snapshot, total, 0.5) : 0);
+            map.putDouble("p95Ms", total > 0 ? percentile(snapshot, total, 0.95) : 0);
+            map.putDouble("p99Ms", total > 0 ? percentile(snapshot, total, 0.99) : 0);
+            return map;
+        }
+    }
+
+    static final class PathMetrics {
+        final AtomicLong sends = new AtomicLong();
+        final AtomicLong successes = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong bytesOut = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong bytesIn = new AtomicLong();
+        final AtomicLong headlessMessages = new AtomicLong();
+        final AtomicLong fileTransfers = new AtomicLong();
+        final AtomicLong fileBytes = new AtomicLong();
+        final AtomicLong fileMs = new AtomicLong();
+        final Histogram latency = new Histogram();
+
+        WritableMap toWritableMap() {
+            long ms = fileMs.get();
+            WritableMap map = Arguments.createMap();
+            map.putDouble("sends", sends.get());
+            map.putDouble("successes", successes.get());
+            map.putDouble("failures", failures.get());
+            map.putDouble("bytesOut", bytesOut.get());
+            map.putDouble("received", received.get());
+            map.putDouble("bytesIn", bytesIn.get());
+            map.putDouble("headlessMessages", headlessMessages.get());
+            map.putDouble("fileTransfers", fileTransfers.get());
+            map.putDouble("fileBytes", fileBytes.get());
+            map.putDouble("fileBytesPerSecond", ms > 0 ? fileBytes.get() * 1000.0 / ms : 0);
+            map.putMap("latency", latency.toWritableMap());
+            return map;
+        }
+    }
+
+    private static final WearConnectivityMetrics INSTANCE = new WearConnectivityMetrics();
+    private final ConcurrentHashMap<String, PathMetrics> paths = new ConcurrentHashMap<>();
+    private final AtomicLong headlessTaskStarts = new AtomicLong();
+    private final long startTime = System.currentTimeMillis();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> snapshots;
+
+    public static WearConnectivityMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private PathMetrics get(String path) {
+        PathMetrics metrics = paths.get(path);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (paths.size() >= MAX_PATHS) {
+            path = OTHER_PATHS;
+        }
+        metrics = new PathMetrics();
+        PathMetrics previous = paths.putIfAbsent(path, metrics);
+        return previous != null ? previous : metrics;
+    }
+
+    /**
+     * Records a send of bytes on path, its success or failure and the send-to-success latency
+     * once the task completes. Returns the task.
+     */
+    public <T> Task<T> trackSend(String path, long bytes, Task<T> task) {
+        long start = System.nanoTime();
+        task.addOnCompleteListener(DIRECT_EXECUTOR, completed ->
+                recordSend(path, bytes, completed.isSuccessful(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        return task;
+    }
+
+    /**
+     * Records a send of bytes on path, latencyMs is only recorded for a successful send.
+     */
+    public void recordSend(String path, long bytes, boolean success, long latencyMs) {
+        PathMetrics metrics = get(path);
+        metrics.sends.incrementAndGet();
+        metrics.bytesOut.addAndGet(bytes);
+        if (success) {
+            metrics.successes.incrementAndGet();
+            metrics.latency.record(latencyMs);
+        } else {
+            metrics.failures.incrementAndGet();
+        }
+    }
+
+    public void recordReceived(String path, long bytes) {
+        PathMetrics metrics = get(path);
+        metrics.received.incrementAndGet();
+        metrics.bytesIn.addAndGet(bytes);
+    }
+
+    /**
+     * Records a message of path delivered to JS through the HeadlessJs task.
+     */
+    public void recordHeadlessMessage(String path) {
+        get(path).headlessMessages.incrementAndGet();
+    }
+
+    public void recordHeadlessTaskStart() {
+        headlessTaskStarts.incrementAndGet();
+    }
+
+    /**
+     * Records a completed file transfer of bytes on path, in either direction.
+     */
+    public void recordFileTransfer(String path, long bytes, long durationMs) {
+        PathMetrics metrics = get(path);
+        metrics.fileTransfers.incrementAndGet();
+        metrics.fileBytes.addAndGet(bytes);
+        metrics.fileMs.addAndGet(durationMs);
+    }
+
+    /**
+     * Returns { startTime, timestamp, headlessTaskStarts, paths: { [path]: metrics } }.
+     */
+    public WritableMap getSnapshot() {
+        WritableMap pathsMap = Arguments.createMap();
+        for (Map.Entry<String, PathMetrics> entry : paths.entrySet()) {
+            pathsMap.putMap(entry.getKey(), entry.getValue().toWritableMap());
+        }
+        WritableMap snapshot = Arguments.createMap();
+        snapshot.putDouble("startTime", startTime);
+        snapshot.putDouble("timestamp", System.currentTimeMillis());
+        snapshot.putDouble("headlessTaskStarts", headlessTaskStarts.get());
+        snapshot.putMap("paths", pathsMap);
+        return snapshot;
+    }
+
+    /**
+     * Starts or stops the periodic snapshots, e.g. { snapshotIntervalMs: 60000 }, 0 stops them.
+     */
+    public synchronized void configure(ReadableMap options, SnapshotListener listener) {
+        if (options == null || !options.hasKey(OPTION_SNAPSHOT_INTERVAL_MS)) {
+            return;
+        }
+        long intervalMs = Math.max(0, (long) options.getDouble(OPTION_SNAPSHOT_INTERVAL_MS));
+        if (snapshots != null) {
+            snapshots.cancel(false);
+            snapshots = null;
+        }
+        if (intervalMs == 0) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+        }
+        snapshots = scheduler.scheduleAtFixedRate(() -> listener.onSnapshot(getSnapshot()),
+                intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+}
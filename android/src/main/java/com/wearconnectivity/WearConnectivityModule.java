@@ -1,23 +1,20 @@
 package com.wearconnectivity;
 
-import android.util.Log;
-
 import androidx.annotation.NonNull;
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableMap;
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.tasks.Tasks;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.google.android.gms.wearable.Node;
-import com.google.android.gms.wearable.NodeClient;
-import com.google.android.gms.wearable.Wearable;
 
+import java.io.IOException;
 import java.util.List;
 
-import com.google.android.gms.common.GoogleApiAvailability;
-
 public class WearConnectivityModule extends WearConnectivitySpec {
 
   private static ReactApplicationContext reactContext;
@@ -25,6 +22,7 @@ public class WearConnectivityModule extends WearConnectivitySpec {
   private static final String TAG = "react-native-wear-connectivity ";
   private final WearConnectivityMessageClient messageClient;
   private final WearConnectivityDataClient dataClient;
+  private final WearConnectivityNodeRegistry nodeRegistry;
   private boolean isListenerAdded = false;
   private String NO_NODES_FOUND = TAG + "sendMessage failed. No connected nodes found.";
   private String RETRIEVE_NODES_FAILED = TAG + "failed to retrieve nodes with error: ";
@@ -34,8 +32,12 @@ public class WearConnectivityModule extends WearConnectivitySpec {
   WearConnectivityModule(ReactApplicationContext context) {
     super(context);
     reactContext = context;
-    messageClient = new WearConnectivityMessageClient(context);
+    nodeRegistry = new WearConnectivityNodeRegistry(context);
+    messageClient = new WearConnectivityMessageClient(context, nodeRegistry);
     dataClient = new WearConnectivityDataClient(context);
+    // replay the outbox and negotiate the payload encoding when a node comes back nearby
+    nodeRegistry.addListener(messageClient::drainOutbox);
+    nodeRegistry.addListener(messageClient::negotiateCodec);
   }
 
   @Override
@@ -52,12 +54,34 @@ public class WearConnectivityModule extends WearConnectivitySpec {
   @ReactMethod
   public void sendFile(String filePath, ReadableMap metadata, Promise promise) {
     if (dataClient != null) {
-      dataClient.sendFile(filePath, promise);
+      List<Node> connectedNodes = retrieveNodes();
+      if (connectedNodes != null) {
+        dataClient.sendFile(filePath, connectedNodes, promise);
+      } else {
+        promise.reject("E_SEND_FAILED", getRetrieveNodesError());
+      }
     } else {
       promise.reject("E_SEND_FAILED", "Failed to send file");
     }
   }
 
+  /**
+   * Configures file transfers, e.g. { channelThresholdBytes: 1048576 }.
+   * Files of at least channelThresholdBytes are streamed through the ChannelClient.
+   */
+  @ReactMethod
+  public void configureFileTransfer(ReadableMap options) {
+    dataClient.configureFileTransfer(options);
+  }
+
+  /**
+   * Resolves with the progress of the incoming file transfers that did not finish yet.
+   */
+  @ReactMethod
+  public void getActiveFileTransfers(Promise promise) {
+    promise.resolve(dataClient.getActiveTransfers());
+  }
+
     @ReactMethod
     public void sendData(String path, ReadableMap data, ReadableMap options, Promise promise) {
         if (dataClient != null) {
@@ -67,13 +91,66 @@ public class WearConnectivityModule extends WearConnectivitySpec {
         }
     }
 
+  /**
+   * Resolves with the cached data of the DataItem at path, or null, without a DataClient round trip.
+   */
+  @ReactMethod
+  public void getDataItem(String path, Promise promise) {
+    promise.resolve(dataClient.getCachedDataItem(path));
+  }
+
+  /**
+   * Resolves with the cached DataItems whose path starts with prefix, as { path, data } maps.
+   */
+  @ReactMethod
+  public void getDataItems(String prefix, Promise promise) {
+    promise.resolve(dataClient.getCachedDataItems(prefix));
+  }
+
+  /**
+   * Delivers the changes of the DataItems whose path starts with prefix in DataChangedEvent events.
+   */
+  @ReactMethod
+  public void subscribeDataChanges(String prefix) {
+    dataClient.subscribeDataChanges(prefix);
+  }
+
+  @ReactMethod
+  public void unsubscribeDataChanges(String prefix) {
+    dataClient.unsubscribeDataChanges(prefix);
+  }
+
+  /**
+   * Bounds the DataItem cache, e.g. { maxEntries: 256, maxBytes: 1048576 }.
+   */
+  @ReactMethod
+  public void configureDataCache(ReadableMap options) {
+    dataClient.configureDataCache(options);
+  }
+
+  /**
+   * Returns the DataItem cache hit/miss/eviction counters.
+   */
+  @ReactMethod
+  public void getDataCacheStats(Promise promise) {
+    promise.resolve(dataClient.getDataCacheStats());
+  }
+
+  /**
+   * Returns the skipped/full/patch write counters of the delta sendData.
+   */
+  @ReactMethod
+  public void getDeltaSyncStats(Promise promise) {
+    promise.resolve(dataClient.getDeltaSyncStats());
+  }
+
   @ReactMethod
   public void sendMessageWithPath(String path, ReadableMap payload, Callback replyCb, Callback errorCb) {
-      List<Node> connectedNodes = retrieveNodes(errorCb);
-      if (connectedNodes != null && !connectedNodes.isEmpty()) {
+      List<Node> connectedNodes = retrieveNodes();
+      if (connectedNodes != null && (!connectedNodes.isEmpty() || messageClient.isOutboxEnabled())) {
           messageClient.sendMessage(path, payload, connectedNodes, replyCb, errorCb);
       } else {
-          errorCb.invoke(NO_NODES_FOUND);
+          errorCb.invoke(connectedNodes == null ? getRetrieveNodesError() : NO_NODES_FOUND);
       }
   }
 
@@ -83,18 +160,273 @@ public class WearConnectivityModule extends WearConnectivitySpec {
    */
   @ReactMethod
   public void sendMessage(ReadableMap messageData, Callback replyCb, Callback errorCb) {
-    List<Node> connectedNodes = retrieveNodes(errorCb);
-    if (connectedNodes != null && !connectedNodes.isEmpty()) {
+    List<Node> connectedNodes = retrieveNodes();
+    if (connectedNodes != null && (!connectedNodes.isEmpty() || messageClient.isOutboxEnabled())) {
       messageClient.sendMessage(null, messageData, connectedNodes, replyCb, errorCb);
     } else {
-      errorCb.invoke(NO_NODES_FOUND);
+      errorCb.invoke(connectedNodes == null ? getRetrieveNodesError() : NO_NODES_FOUND);
     }
   }
 
+  /**
+   * Sends a message to every nearby node without blocking the native modules thread.
+   * The promise resolves with one { nodeId, displayName, success, queued, requestId, error } entry per node,
+   * or with no entry when the message was queued in the outbox.
+   */
+  @ReactMethod
+  public void sendMessageAsync(String path, ReadableMap payload, Promise promise) {
+    List<Node> connectedNodes = retrieveNodes();
+    if (connectedNodes != null && (!connectedNodes.isEmpty() || messageClient.isOutboxEnabled())) {
+      messageClient.sendMessageAsync(path, payload, connectedNodes, promise);
+    } else {
+      promise.reject("E_NO_CONNECTED_NODES", connectedNodes == null ? getRetrieveNodesError() : NO_NODES_FOUND);
+    }
+  }
+
+  /**
+   * Sends a message to a single node, see getConnectedNodes for the node ids.
+   * Rejects with E_NODE_NOT_CONNECTED or E_NODE_NOT_NEARBY unless the outbox is enabled.
+   */
+  @ReactMethod
+  public void sendMessageToNode(String nodeId, String path, ReadableMap payload, Promise promise) {
+    List<Node> connectedNodes = retrieveNodes();
+    if (connectedNodes != null) {
+      messageClient.sendMessageToNode(nodeId, path, payload, connectedNodes, promise);
+    } else {
+      promise.reject("E_NO_CONNECTED_NODES", connectedNodes == null ? getRetrieveNodesError() : NO_NODES_FOUND);
+    }
+  }
+
+  /**
+   * Sends a request to the watch and resolves with its response, or rejects with E_TIMEOUT.
+   */
+  @ReactMethod
+  public void sendRequest(String path, ReadableMap payload, double timeoutMs, Promise promise) {
+    List<Node> connectedNodes = retrieveNodes();
+    if (connectedNodes != null && !connectedNodes.isEmpty()) {
+      long timeout = timeoutMs > 0 ? (long) timeoutMs : WearConnectivityRequests.DEFAULT_TIMEOUT_MS;
+      messageClient.sendRequest(path, payload, timeout, connectedNodes, promise);
+    } else {
+      promise.reject("E_NO_CONNECTED_NODES", connectedNodes == null ? getRetrieveNodesError() : NO_NODES_FOUND);
+    }
+  }
+
+  /**
+   * Answers a request received from the watch.
+   */
+  @ReactMethod
+  public void sendResponse(String nodeId, String path, String requestId, ReadableMap payload, Promise promise) {
+    messageClient.sendResponse(nodeId, path, requestId, payload, promise);
+  }
+
+  /**
+   * Returns the pending/completed/timed out request counters.
+   */
+  @ReactMethod
+  public void getRequestStats(Promise promise) {
+    promise.resolve(messageClient.getRequestStats());
+  }
+
+  /**
+   * Queues the messages that could not be sent in a persistent outbox, replayed when a node is nearby again,
+   * e.g. { enabled: true, maxBytes: 1048576, ttlMs: 86400000, maxBatchSize: 20 }.
+   */
+  @ReactMethod
+  public void configureOutbox(ReadableMap options, Promise promise) {
+    try {
+      messageClient.configureOutbox(options);
+      messageClient.drainOutbox(nodeRegistry.getNodes());
+      promise.resolve(null);
+    } catch (IOException e) {
+      promise.reject("E_OUTBOX_FAILED", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the pending/delivered/expired/dropped counters of the outbox.
+   */
+  @ReactMethod
+  public void getOutboxStats(Promise promise) {
+    promise.resolve(messageClient.getOutboxStats());
+  }
+
+  /**
+   * Configures compression of messages and DataItems, e.g. { enabled: true, minSizeBytes: 256, level: 6 }.
+   */
+  @ReactMethod
+  public void configureCompression(ReadableMap options, Promise promise) {
+    try {
+      messageClient.configureCompression(options);
+      dataClient.configureCompression(options);
+      promise.resolve(null);
+    } catch (IllegalArgumentException e) {
+      promise.reject("E_INVALID_OPTIONS", e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the compression ratio and time of messages and DataItems.
+   */
+  @ReactMethod
+  public void getCompressionStats(Promise promise) {
+    WritableMap stats = Arguments.createMap();
+    stats.putMap("messages", messageClient.getCompressionStats());
+    stats.putMap("dataItems", dataClient.getCompressionStats());
+    promise.resolve(stats);
+  }
+
+  /**
+   * Configures fragmentation of payloads above the MessageClient limit,
+   * e.g. { enabled: true, maxMessageBytes: 102400, maxBufferedBytes: 4194304, reassemblyTimeoutMs: 30000 }.
+   */
+  @ReactMethod
+  public void configureFragmentation(ReadableMap options) {
+    messageClient.configureFragmentation(options);
+  }
+
+  /**
+   * Returns the fragmented/reassembled/evicted message counters.
+   */
+  @ReactMethod
+  public void getFragmentationStats(Promise promise) {
+    promise.resolve(messageClient.getFragmentationStats());
+  }
+
+  /**
+   * Configures batching of outgoing messages, e.g. { enabled: true, flushIntervalMs: 20, maxFrameBytes: 65536 }.
+   */
+  @ReactMethod
+  public void configureBatching(ReadableMap options) {
+    messageClient.configureBatching(options);
+  }
+
+  /**
+   * Selects the message payload encoding, e.g. { encoding: 'json' | 'binary' | 'auto' }.
+   */
+  @ReactMethod
+  public void configureCodec(ReadableMap options, Promise promise) {
+    try {
+      messageClient.configureCodec(options);
+      messageClient.negotiateCodec(nodeRegistry.getNodes());
+      promise.resolve(null);
+    } catch (IllegalArgumentException e) {
+      promise.reject("E_INVALID_OPTIONS", e.getMessage());
+    }
+  }
+
+  /**
+   * Delivers bursts of incoming messages to a single headless task, e.g. { batchWindowMs: 50, maxBatchSize: 100 }.
+   */
+  @ReactMethod
+  public void configureInboundBatching(ReadableMap options) {
+    messageClient.configureInboundBatching(options);
+  }
+
+  /**
+   * Selects how incoming messages reach JS, e.g. { mode: 'auto' } or { mode: 'headless' }.
+   */
+  @ReactMethod
+  public void configureDelivery(ReadableMap options, Promise promise) {
+    try {
+      messageClient.configureDelivery(options);
+      promise.resolve(null);
+    } catch (IllegalArgumentException e) {
+      promise.reject("E_INVALID_OPTIONS", e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the per-path send/receive counters, latency histograms and byte totals.
+   */
+  @ReactMethod
+  public void getMetrics(Promise promise) {
+    promise.resolve(WearConnectivityMetrics.getInstance().getSnapshot());
+  }
+
+  /**
+   * Emits a MetricsEvent with the metrics every snapshotIntervalMs, e.g. { snapshotIntervalMs: 60000 }, 0 stops them.
+   */
+  @ReactMethod
+  public void configureMetrics(ReadableMap options) {
+    WearConnectivityMetrics.getInstance().configure(options, metrics -> {
+      if (reactContext.hasActiveReactInstance()) {
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+          .emit(WearConnectivityMetrics.METRICS_EVENT, metrics);
+      }
+    });
+  }
+
+  /**
+   * Schedules the sends in control/normal/bulk lanes,
+   * e.g. { enabled: true, maxInFlight: 8, lanes: { bulk: { weight: 1, maxInFlight: 1 } }, paths: { '/control': 'control' } }.
+   */
+  @ReactMethod
+  public void configureScheduler(ReadableMap options, Promise promise) {
+    try {
+      WearConnectivitySendScheduler.getInstance().configure(options);
+      promise.resolve(null);
+    } catch (IllegalArgumentException e) {
+      promise.reject("E_INVALID_OPTIONS", e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the queued/in flight/wait time counters of every send lane.
+   */
+  @ReactMethod
+  public void getSchedulerStats(Promise promise) {
+    promise.resolve(WearConnectivitySendScheduler.getInstance().getStats());
+  }
+
+  /**
+   * Sends the messages and requests to every nearby node, or to the best one in 'best' mode.
+   */
+  @ReactMethod
+  public void configureRouting(ReadableMap options, Promise promise) {
+    try {
+      messageClient.configureRouting(options);
+      promise.resolve(null);
+    } catch (IllegalArgumentException e) {
+      promise.reject("E_INVALID_OPTIONS", e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the routing mode and the recent send latency of every node.
+   */
+  @ReactMethod
+  public void getRoutingStats(Promise promise) {
+    promise.resolve(messageClient.getRoutingStats());
+  }
+
+  /**
+   * Bounds the sends in flight to every node, e.g. { enabled: true, maxInFlight: 16, maxQueued: 256, policy: 'queue' }.
+   * A SendWindowEvent is emitted when a node becomes congested or drains.
+   */
+  @ReactMethod
+  public void configureSendWindow(ReadableMap options, Promise promise) {
+    try {
+      messageClient.configureSendWindow(options);
+      promise.resolve(null);
+    } catch (IllegalArgumentException e) {
+      promise.reject("E_INVALID_OPTIONS", e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the in flight/queued sends of every node and the rejected/dropped send counts.
+   */
+  @ReactMethod
+  public void getSendWindowStats(Promise promise) {
+    promise.resolve(messageClient.getSendWindowStats());
+  }
+
   @ReactMethod
   public void getConnectedNodes(Promise promise) {
-      List<Node> nodes = retrieveNodes(null);
-      if (nodes == null || nodes.isEmpty()) {
+      List<Node> nodes = retrieveNodes();
+      if (nodes == null) {
+          promise.reject("E_NO_CONNECTED_NODES", getRetrieveNodesError());
+      } else if (nodes.isEmpty()) {
           promise.reject("E_NO_CONNECTED_NODES", "No connected nodes found.");
       } else {
           WritableArray array = Arguments.createArray();
@@ -109,42 +441,45 @@ public class WearConnectivityModule extends WearConnectivitySpec {
       }
   }
 
-    private List<Node> retrieveNodes(Callback errorCb) {
-        Thread thread = Thread.currentThread();
-        Log.i(TAG, "retrieveNodes currentThread: " + thread.getName());
-        try {
-            int result = GoogleApiAvailability.getInstance().isGooglePlayServicesAvailable(getReactContext());
-            ConnectionResult connectionResult = new ConnectionResult(result);
-            if (!connectionResult.isSuccess()) {
-                Log.e(TAG, "retrieveNodes !connectionResult.isSuccess()");
-//                  errorCb.invoke(MISSING_GOOGLE_PLAY_SERVICES + connectionResult.getErrorMessage());
-                return null;
-            }
-
-//          CapabilityClient capabilityClient = Wearable.getCapabilityClient(getReactContext());
-//          try {
-//              Tasks.await(GoogleApiAvailability.getInstance().checkApiAvailability(capabilityClient));
-//          } catch (Exception e) {
-//              Log.e(TAG, "retrieveNodes checkApiAvailability(capabilityClient) exception: " + e);
-//              return null;
-//          }
-
-            NodeClient nodeClient = Wearable.getNodeClient(getReactContext());
-            try {
-                Tasks.await(GoogleApiAvailability.getInstance().checkApiAvailability(nodeClient));
-            } catch (Exception e) {
-                Log.e(TAG, "retrieveNodes checkApiAvailability(nodeClient) exception: " + e);
-//                  errorCb.invoke(INSTALL_GOOGLE_PLAY_WEARABLE + e);
-                return null;
-            }
-
-            return Tasks.await(nodeClient.getConnectedNodes());
-        } catch (Exception e) {
-            Log.e(TAG, "retrieveNodes exception: " + e);
-//              errorCb.invoke(RETRIEVE_NODES_FAILED + e);
-            return null;
-        }
+  /**
+   * Returns the node registry hit/miss/refresh counters.
+   */
+  @ReactMethod
+  public void getNodeRegistryStats(Promise promise) {
+    promise.resolve(nodeRegistry.getStats());
+  }
+
+  /**
+   * Configures the node registry, e.g. { ttlMs: 30000 }.
+   */
+  @ReactMethod
+  public void configureNodeRegistry(ReadableMap options) {
+    nodeRegistry.configure(options);
+  }
+
+  /**
+   * Returns the nodes of the registry, or null when they could not be fetched and no earlier snapshot is known.
+   */
+  private List<Node> retrieveNodes() {
+    List<Node> nodes = nodeRegistry.getNodes();
+    return nodes.isEmpty() && nodeRegistry.getFailure() != null ? null : nodes;
+  }
+
+  /**
+   * Describes why retrieveNodes returned null.
+   */
+  private String getRetrieveNodesError() {
+    String message = nodeRegistry.getFailureMessage();
+    message = message != null ? message : "";
+    String failure = nodeRegistry.getFailure();
+    if (WearConnectivityNodeRegistry.FAILURE_PLAY_SERVICES.equals(failure)) {
+      return MISSING_GOOGLE_PLAY_SERVICES + message;
+    }
+    if (WearConnectivityNodeRegistry.FAILURE_WEARABLE_API.equals(failure)) {
+      return INSTALL_GOOGLE_PLAY_WEARABLE + message;
     }
+    return RETRIEVE_NODES_FAILED + message;
+  }
 
   private static ReactApplicationContext getReactContext() {
     return reactContext;
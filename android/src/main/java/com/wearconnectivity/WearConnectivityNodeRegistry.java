@@ -0,0 +1,363 @@
+package com.wearconnectivity;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.GoogleApiAvailability;
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.tasks.Tasks;
+import com.google.android.gms.wearable.CapabilityClient;
+import com.google.android.gms.wearable.CapabilityInfo;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeClient;
+import com.google.android.gms.wearable.Wearable;
+import com.google.android.gms.wearable.WearableStatusCodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps an in-memory snapshot of the connected nodes and of the reachable nodes of every capability.
+ * The snapshot is refreshed in the background when it is older than the TTL
+ * or when a node change is observed, so the send path never waits on NodeClient once the registry has been warmed up.
+ * NodeClient has no listener, so the node changes are observed through the CapabilityClient reachability changes,
+ * the messages received from a node missing in the snapshot and the sends failing with TARGET_NODE_NOT_CONNECTED.
+ * A failed refresh keeps the previous snapshot, stale so the next read tries again, and records the failure.
+ */
+public class WearConnectivityNodeRegistry implements CapabilityClient.OnCapabilityChangedListener, LifecycleEventListener {
+
+    /**
+     * Notified on the registry executor when a refresh found other nodes, or a node whose nearby state changed.
+     */
+    public interface NodesListener {
+        void onNodesChanged(List<Node> nodes);
+    }
+
+    public static final String OPTION_TTL_MS = "ttlMs";
+    public static final long DEFAULT_TTL_MS = 30000;
+    public static final String FAILURE_PLAY_SERVICES = "playServices";
+    public static final String FAILURE_WEARABLE_API = "wearableApi";
+    public static final String FAILURE_FETCH = "fetch";
+    private static final String TAG = "WearConnectivityNodeRegistry";
+    private static final Uri ALL_CAPABILITIES_URI = Uri.parse("wear://");
+    private final ReactApplicationContext reactContext;
+    private final NodeClient nodeClient;
+    private final CapabilityClient capabilityClient;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean isRefreshing = new AtomicBoolean(false);
+    private final AtomicBoolean isRefreshRequested = new AtomicBoolean(false);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final List<NodesListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<Node> nodes = Collections.emptyList();
+    // capability name to the ids of its reachable nodes, replaced as a whole
+    private volatile Map<String, Set<String>> capabilityNodeIds = Collections.emptyMap();
+    private volatile boolean hasCapabilities;
+    private volatile long lastRefreshTime;
+    private volatile boolean hasSnapshot;
+    private volatile long ttlMs = DEFAULT_TTL_MS;
+    // cause of the last failed refresh, null once a refresh succeeds
+    private volatile String failure;
+    private volatile String failureMessage;
+    private boolean isListenerAdded;
+
+    public WearConnectivityNodeRegistry(ReactApplicationContext context) {
+        this.reactContext = context;
+        this.nodeClient = Wearable.getNodeClient(context);
+        this.capabilityClient = Wearable.getCapabilityClient(context);
+        addCapabilityListener();
+        context.addLifecycleEventListener(this);
+        refreshAsync();
+    }
+
+    /**
+     * Returns the cached nodes without blocking, unless the registry has never been loaded.
+     * A stale snapshot is still returned and a background refresh is scheduled.
+     */
+    public List<Node> getNodes() {
+        if (!hasSnapshot) {
+            misses.incrementAndGet();
+            refreshIfMissing();
+            return nodes;
+        }
+        if (SystemClock.elapsedRealtime() - lastRefreshTime > ttlMs) {
+            staleHits.incrementAndGet();
+            refreshAsync();
+        } else {
+            hits.incrementAndGet();
+        }
+        return nodes;
+    }
+
+    /**
+     * Drops the current snapshot age so the next read triggers a refresh.
+     */
+    public void invalidate() {
+        lastRefreshTime = 0;
+        refreshAsync();
+    }
+
+    /**
+     * Returns the ids of the reachable nodes advertising capability, or null while the capabilities were never loaded.
+     */
+    public Set<String> getCapabilityNodeIds(String capability) {
+        if (!hasCapabilities) {
+            return null;
+        }
+        Set<String> nodeIds = capabilityNodeIds.get(capability);
+        return nodeIds != null ? nodeIds : Collections.emptySet();
+    }
+
+    /**
+     * Called when a message or data is received from nodeId, refreshes the snapshot when it does not list the node as nearby.
+     */
+    public void onNodeSeen(String nodeId) {
+        if (!hasSnapshot || nodeId == null) {
+            return;
+        }
+        for (Node node : nodes) {
+            if (node.getId().equals(nodeId) && node.isNearby()) {
+                return;
+            }
+        }
+        Log.d(TAG, "received from " + nodeId + " missing in the snapshot, refreshing nodes");
+        invalidate();
+    }
+
+    /**
+     * Called when a send to nodeId failed, refreshes the snapshot when the node is no longer connected.
+     */
+    public void onSendFailed(String nodeId, Exception error) {
+        if (error instanceof ApiException
+                && ((ApiException) error).getStatusCode() == WearableStatusCodes.TARGET_NODE_NOT_CONNECTED) {
+            Log.d(TAG, "node " + nodeId + " is not connected, refreshing nodes");
+            invalidate();
+        }
+    }
+
+    /**
+     * Returns FAILURE_PLAY_SERVICES, FAILURE_WEARABLE_API or FAILURE_FETCH when the last refresh failed, null otherwise.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    public void addListener(NodesListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(NodesListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void configure(ReadableMap options) {
+        if (options != null && options.hasKey(OPTION_TTL_MS)) {
+            ttlMs = Math.max(0, (long) options.getDouble(OPTION_TTL_MS));
+        }
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("hits", hits.get());
+        stats.putDouble("staleHits", staleHits.get());
+        stats.putDouble("misses", misses.get());
+        stats.putDouble("refreshes", refreshes.get());
+        stats.putDouble("refreshFailures", refreshFailures.get());
+        if (failure != null) {
+            stats.putString("failure", failure);
+        } else {
+            stats.putNull("failure");
+        }
+        stats.putInt("nodeCount", nodes.size());
+        stats.putInt("capabilityCount", capabilityNodeIds.size());
+        stats.putDouble("ageMs", hasSnapshot ? SystemClock.elapsedRealtime() - lastRefreshTime : -1);
+        stats.putDouble("ttlMs", ttlMs);
+        return stats;
+    }
+
+    @Override
+    public void onCapabilityChanged(@NonNull CapabilityInfo capabilityInfo) {
+        Log.d(TAG, "onCapabilityChanged " + capabilityInfo.getName() + ", refreshing nodes");
+        if (hasCapabilities) {
+            Map<String, Set<String>> capabilities = new HashMap<>(capabilityNodeIds);
+            capabilities.put(capabilityInfo.getName(), getNodeIds(capabilityInfo));
+            capabilityNodeIds = capabilities;
+        }
+        invalidate();
+    }
+
+    private void refreshAsync() {
+        if (!isRefreshing.compareAndSet(false, true)) {
+            // a change arrived while refreshing, run one more pass once the current one ends
+            isRefreshRequested.set(true);
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                do {
+                    refresh();
+                } while (isRefreshRequested.getAndSet(false));
+            } finally {
+                isRefreshing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Waits for the warm-up refresh if it is still running, otherwise loads the nodes.
+     */
+    private synchronized void refreshIfMissing() {
+        if (!hasSnapshot) {
+            refresh();
+        }
+    }
+
+    /**
+     * Blocking refresh, only called from the registry executor or on the very first read.
+     */
+    private synchronized void refresh() {
+        refreshes.incrementAndGet();
+        List<Node> connectedNodes = fetchNodes();
+        if (connectedNodes == null) {
+            // a transient error must not replace the snapshot with an empty one,
+            // the snapshot age is left as is so the next read retries
+            refreshFailures.incrementAndGet();
+            return;
+        }
+        failure = null;
+        failureMessage = null;
+        // Play Services is available when the nodes could be fetched
+        Map<String, CapabilityInfo> capabilities = fetchCapabilities();
+        if (capabilities != null) {
+            Map<String, Set<String>> nodeIds = new HashMap<>();
+            for (Map.Entry<String, CapabilityInfo> entry : capabilities.entrySet()) {
+                nodeIds.put(entry.getKey(), getNodeIds(entry.getValue()));
+            }
+            capabilityNodeIds = nodeIds;
+            hasCapabilities = true;
+        }
+        boolean isChanged = !isSameNodes(nodes, connectedNodes);
+        nodes = Collections.unmodifiableList(new ArrayList<>(connectedNodes));
+        lastRefreshTime = SystemClock.elapsedRealtime();
+        hasSnapshot = true;
+        if (isChanged) {
+            for (NodesListener listener : listeners) {
+                listener.onNodesChanged(nodes);
+            }
+        }
+    }
+
+    private static boolean isSameNodes(List<Node> previousNodes, List<Node> connectedNodes) {
+        if (previousNodes.size() != connectedNodes.size()) {
+            return false;
+        }
+        for (int i = 0; i < previousNodes.size(); i++) {
+            Node previous = previousNodes.get(i);
+            Node node = connectedNodes.get(i);
+            if (!previous.getId().equals(node.getId()) || previous.isNearby() != node.isNearby()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> getNodeIds(CapabilityInfo capabilityInfo) {
+        Set<String> nodeIds = new HashSet<>();
+        for (Node node : capabilityInfo.getNodes()) {
+            nodeIds.add(node.getId());
+        }
+        return nodeIds;
+    }
+
+    private Map<String, CapabilityInfo> fetchCapabilities() {
+        try {
+            return Tasks.await(capabilityClient.getAllCapabilities(CapabilityClient.FILTER_REACHABLE));
+        } catch (Exception e) {
+            Log.e(TAG, "fetchCapabilities exception: " + e);
+            return null;
+        }
+    }
+
+    private List<Node> fetchNodes() {
+        try {
+            int result = GoogleApiAvailability.getInstance().isGooglePlayServicesAvailable(reactContext);
+            ConnectionResult connectionResult = new ConnectionResult(result);
+            if (!connectionResult.isSuccess()) {
+                Log.e(TAG, "fetchNodes !connectionResult.isSuccess()");
+                return fail(FAILURE_PLAY_SERVICES, connectionResult.getErrorMessage());
+            }
+
+            try {
+                Tasks.await(GoogleApiAvailability.getInstance().checkApiAvailability(nodeClient));
+            } catch (Exception e) {
+                Log.e(TAG, "fetchNodes checkApiAvailability(nodeClient) exception: " + e);
+                return fail(FAILURE_WEARABLE_API, e.toString());
+            }
+
+            return Tasks.await(nodeClient.getConnectedNodes());
+        } catch (Exception e) {
+            Log.e(TAG, "fetchNodes exception: " + e);
+            return fail(FAILURE_FETCH, e.toString());
+        }
+    }
+
+    private List<Node> fail(String cause, String message) {
+        failureMessage = message;
+        failure = cause;
+        return null;
+    }
+
+    private void addCapabilityListener() {
+        if (capabilityClient != null && !isListenerAdded) {
+            capabilityClient.addListener(this, ALL_CAPABILITIES_URI, CapabilityClient.FILTER_PREFIX);
+            isListenerAdded = true;
+        }
+    }
+
+    @Override
+    public void onHostResume() {
+        addCapabilityListener();
+        if (SystemClock.elapsedRealtime() - lastRefreshTime > ttlMs) {
+            refreshAsync();
+        }
+    }
+
+    @Override
+    public void onHostPause() {
+        // keep the listener so the snapshot stays fresh for background sends
+    }
+
+    @Override
+    public void onHostDestroy() {
+        if (capabilityClient != null && isListenerAdded) {
+            capabilityClient.removeListener(this);
+            isListenerAdded = false;
+        }
+    }
+}
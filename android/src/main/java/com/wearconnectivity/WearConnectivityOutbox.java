@@ -0,0 +1,492 @@
+package com.wearconnectivity;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Opt-in durable outbox of the messages that could not be sent, replayed once a node is nearby again.
+ * Messages are appended to a memory-mapped log of maxBytes in the app files dir, each record being
+ * [u32 length][u8 state][u32 crc][i64 expiresAt][u16 nodeId length][nodeId][u16 path length][path][payload],
+ * the payload being the message encoded with {@link WearConnectivityCodec}. The length is written last,
+ * so a record interrupted by a crash is never read back.
+ * Delivered and expired records are only flagged, the log is compacted into a new file once they fill half of it.
+ * A record without node id was queued while no node was nearby and is replayed to every nearby node.
+ */
+public class WearConnectivityOutbox {
+    public static final String OPTION_ENABLED = "enabled";
+    public static final String OPTION_MAX_BYTES = "maxBytes";
+    public static final String OPTION_TTL_MS = "ttlMs";
+    public static final String OPTION_MAX_BATCH_SIZE = "maxBatchSize";
+    public static final String OPTION_INITIAL_BACKOFF_MS = "initialBackoffMs";
+    public static final String OPTION_MAX_BACKOFF_MS = "maxBackoffMs";
+    public static final String FILE_NAME = "wear-connectivity-outbox.log";
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+    public static final long DEFAULT_TTL_MS = 24 * 60 * 60 * 1000L;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 20;
+    public static final long DEFAULT_INITIAL_BACKOFF_MS = 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MS = 5 * 60 * 1000L;
+    private static final String TAG = "WearConnectivityOutbox";
+    private static final byte STATE_PENDING = 1;
+    private static final byte STATE_DONE = 2;
+    private static final int LENGTH_SIZE = 4;
+    // length, state and crc
+    private static final int HEADER_SIZE = LENGTH_SIZE + 1 + 4;
+    // expiresAt and the two string lengths
+    private static final int MIN_BODY_SIZE = 8 + 2 + 2;
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    /**
+     * A queued message, its offset changes when the log is compacted.
+     */
+    public static final class Entry {
+        final String nodeId;
+        final String path;
+        final long expiresAt;
+        final int size;
+        final int payloadOffset;
+        int offset;
+        int attempts;
+        long nextAttemptTime;
+        boolean isInFlight;
+
+        Entry(String nodeId, String path, long expiresAt, int size, int payloadOffset, int offset) {
+            this.nodeId = nodeId;
+            this.path = path;
+            this.expiresAt = expiresAt;
+            this.size = size;
+            this.payloadOffset = payloadOffset;
+            this.offset = offset;
+        }
+
+        /**
+         * The node the message failed to reach, or null when it goes to every nearby node.
+         */
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+
+    private final File file;
+    // log order, the first entry is the oldest
+    private final List<Entry> entries = new ArrayList<>();
+    private MappedByteBuffer log;
+    private int tail;
+    private int deadBytes;
+    private boolean enabled;
+    private int maxBytes = DEFAULT_MAX_BYTES;
+    private long ttlMs = DEFAULT_TTL_MS;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private long initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+    private long maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+    private long enqueued;
+    private long delivered;
+    private long retries;
+    private long expired;
+    private long dropped;
+    private long compactions;
+
+    public WearConnectivityOutbox(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Enabling the outbox opens the log and reloads the messages queued by a previous run.
+     * Disabling it closes the log, the queued messages stay on disk until it is enabled again.
+     */
+    public synchronized void configure(ReadableMap options) throws IOException {
+        if (options == null) {
+            return;
+        }
+        int newMaxBytes = maxBytes;
+        if (options.hasKey(OPTION_MAX_BYTES)) {
+            newMaxBytes = Math.max(HEADER_SIZE + MIN_BODY_SIZE, options.getInt(OPTION_MAX_BYTES));
+        }
+        if (options.hasKey(OPTION_TTL_MS)) {
+            ttlMs = Math.max(0, (long) options.getDouble(OPTION_TTL_MS));
+        }
+        if (options.hasKey(OPTION_MAX_BATCH_SIZE)) {
+            maxBatchSize = Math.max(1, options.getInt(OPTION_MAX_BATCH_SIZE));
+        }
+        if (options.hasKey(OPTION_INITIAL_BACKOFF_MS)) {
+            initialBackoffMs = Math.max(1, (long) options.getDouble(OPTION_INITIAL_BACKOFF_MS));
+        }
+        if (options.hasKey(OPTION_MAX_BACKOFF_MS)) {
+            maxBackoffMs = Math.max(0, (long) options.getDouble(OPTION_MAX_BACKOFF_MS));
+        }
+        if (options.hasKey(OPTION_ENABLED)) {
+            enabled = options.getBoolean(OPTION_ENABLED);
+        }
+        boolean isResized = newMaxBytes != maxBytes;
+        maxBytes = newMaxBytes;
+        if (!enabled) {
+            close();
+        } else if (log == null) {
+            open();
+        } else if (isResized) {
+            compact();
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled && log != null;
+    }
+
+    /**
+     * Queues payload for nodeId, or for every nearby node when nodeId is null.
+     * Returns false when the outbox is disabled or the message does not fit in maxBytes.
+     */
+    public synchronized boolean add(String nodeId, String path, byte[] payload) {
+        if (!isEnabled()) {
+            return false;
+        }
+        return append(nodeId, path, payload, System.currentTimeMillis() + ttlMs) != null;
+    }
+
+    /**
+     * Marks at most maxBatchSize messages that are due and whose node is nearby as in flight,
+     * and drops the expired ones. Each returned entry is then passed to complete, retry or split.
+     */
+    public synchronized List<Entry> takeDue(Set<String> nearbyNodeIds) {
+        List<Entry> due = new ArrayList<>();
+        if (!isEnabled() || nearbyNodeIds.isEmpty()) {
+            return due;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext() && due.size() < maxBatchSize) {
+            Entry entry = iterator.next();
+            if (entry.isInFlight || entry.nextAttemptTime > now) {
+                continue;
+            }
+            if (entry.expiresAt <= now) {
+                iterator.remove();
+                markDone(entry);
+                expired++;
+                continue;
+            }
+            if (entry.nodeId == null || nearbyNodeIds.contains(entry.nodeId)) {
+                entry.isInFlight = true;
+                due.add(entry);
+            }
+        }
+        compactIfNeeded();
+        return due;
+    }
+
+    /**
+     * Returns the payload of a queued message, or null when it is no longer queued.
+     */
+    public synchronized byte[] getPayload(Entry entry) {
+        if (log == null || !entries.contains(entry)) {
+            return null;
+        }
+        ByteBuffer record = log.duplicate();
+        record.limit(entry.offset + entry.size);
+        record.position(entry.offset + entry.payloadOffset);
+        byte[] payload = new byte[record.remaining()];
+        record.get(payload);
+        return payload;
+    }
+
+    /**
+     * Removes a message that was delivered, or that can not be delivered at all.
+     */
+    public synchronized void complete(Entry entry) {
+        if (log == null || !entries.remove(entry)) {
+            return;
+        }
+        markDone(entry);
+        delivered++;
+        compactIfNeeded();
+    }
+
+    /**
+     * Schedules the next attempt of a message that failed, after an exponential backoff.
+     */
+    public synchronized void retry(Entry entry) {
+        entry.isInFlight = false;
+        entry.attempts++;
+        entry.nextAttemptTime = System.currentTimeMillis() + getBackoffMs(entry.attempts);
+        retries++;
+    }
+
+    /**
+     * Replaces a message sent to every nearby node that only failed for some of them
+     * by one message per failed node, so the other nodes do not receive it twice.
+     */
+    public synchronized void split(Entry entry, List<String> failedNodeIds) {
+        byte[] payload = getPayload(entry);
+        if (payload == null) {
+            return;
+        }
+        entries.remove(entry);
+        markDone(entry);
+        long nextAttemptTime = System.currentTimeMillis() + getBackoffMs(entry.attempts + 1);
+        for (String nodeId : failedNodeIds) {
+            Entry nodeEntry = append(nodeId, entry.path, payload, entry.expiresAt);
+            if (nodeEntry != null) {
+                nodeEntry.attempts = entry.attempts + 1;
+                nodeEntry.nextAttemptTime = nextAttemptTime;
+            }
+        }
+        retries++;
+        compactIfNeeded();
+    }
+
+    /**
+     * Returns the delay until the next message backing off is due, or -1 when none is.
+     */
+    public synchronized long getNextAttemptDelayMs() {
+        long now = System.currentTimeMillis();
+        long delay = -1;
+        for (Entry entry : entries) {
+            if (!entry.isInFlight && entry.nextAttemptTime > now && (delay < 0 || entry.nextAttemptTime - now < delay)) {
+                delay = entry.nextAttemptTime - now;
+            }
+        }
+        return delay;
+    }
+
+    public synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putBoolean("enabled", isEnabled());
+        stats.putDouble("pending", entries.size());
+        stats.putDouble("bytes", tail - deadBytes);
+        stats.putDouble("logBytes", tail);
+        stats.putDouble("maxBytes", maxBytes);
+        stats.putDouble("enqueued", enqueued);
+        stats.putDouble("delivered", delivered);
+        stats.putDouble("retries", retries);
+        stats.putDouble("expired", expired);
+        stats.putDouble("dropped", dropped);
+        stats.putDouble("compactions", compactions);
+        return stats;
+    }
+
+    private long getBackoffMs(int attempts) {
+        return Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+    }
+
+    private Entry append(String nodeId, String path, byte[] payload, long expiresAt) {
+        byte[] nodeIdBytes = nodeId != null ? nodeId.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] pathBytes = path != null ? path.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (nodeIdBytes.length > MAX_STRING_LENGTH || pathBytes.length > MAX_STRING_LENGTH) {
+            dropped++;
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(MIN_BODY_SIZE + nodeIdBytes.length + pathBytes.length + payload.length);
+        body.putLong(expiresAt)
+                .putShort((short) nodeIdBytes.length).put(nodeIdBytes)
+                .putShort((short) pathBytes.length).put(pathBytes)
+                .put(payload);
+        int size = HEADER_SIZE + body.capacity();
+        if (tail + size > log.capacity() && deadBytes > 0) {
+            try {
+                compact();
+            } catch (IOException e) {
+                Log.w(TAG, "compaction failed: " + e);
+            }
+        }
+        if (log == null || tail + size > log.capacity()) {
+            dropped++;
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        log.put(tail + LENGTH_SIZE, STATE_PENDING);
+        log.putInt(tail + LENGTH_SIZE + 1, (int) crc.getValue());
+        ByteBuffer record = log.duplicate();
+        record.position(tail + HEADER_SIZE);
+        record.put(body.array());
+        log.putInt(tail, size - LENGTH_SIZE);
+        log.force();
+        Entry entry = new Entry(nodeId, path, expiresAt, size, size - payload.length, tail);
+        entries.add(entry);
+        tail += size;
+        enqueued++;
+        return entry;
+    }
+
+    private void markDone(Entry entry) {
+        log.put(entry.offset + LENGTH_SIZE, STATE_DONE);
+        deadBytes += entry.size;
+    }
+
+    private void compactIfNeeded() {
+        if (deadBytes > 0 && (entries.isEmpty() || deadBytes * 2 > log.capacity())) {
+            try {
+                compact();
+            } catch (IOException e) {
+                Log.w(TAG, "compaction failed: " + e);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        // a log written with a larger maxBytes is read whole, then compacted to the new size
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(maxBytes, file.length()));
+        log = map(file, capacity);
+        load();
+        if (capacity != maxBytes || deadBytes * 2 > capacity) {
+            compact();
+        }
+    }
+
+    private void close() {
+        if (log != null) {
+            log.force();
+            log = null;
+        }
+        // the messages still in flight are sent again once the outbox is enabled
+        entries.clear();
+        tail = 0;
+        deadBytes = 0;
+    }
+
+    /**
+     * Reads the records up to the first incomplete or corrupted one.
+     */
+    private void load() {
+        entries.clear();
+        tail = 0;
+        deadBytes = 0;
+        long now = System.currentTimeMillis();
+        while (tail + HEADER_SIZE + MIN_BODY_SIZE <= log.capacity()) {
+            int length = log.getInt(tail);
+            if (length < HEADER_SIZE - LENGTH_SIZE + MIN_BODY_SIZE || length > log.capacity() - tail - LENGTH_SIZE) {
+                break;
+            }
+            Entry entry = readEntry(tail, length + LENGTH_SIZE);
+            if (entry == null) {
+                break;
+            }
+            if (log.get(tail + LENGTH_SIZE) == STATE_PENDING && entry.expiresAt > now) {
+                entries.add(entry);
+            } else {
+                deadBytes += entry.size;
+            }
+            tail += entry.size;
+        }
+        // bytes of a record interrupted by a crash must not be read as the next record
+        for (int i = tail; i < log.capacity(); i++) {
+            if (log.get(i) != 0) {
+                log.put(i, (byte) 0);
+            }
+        }
+    }
+
+    private Entry readEntry(int offset, int size) {
+        byte state = log.get(offset + LENGTH_SIZE);
+        if (state != STATE_PENDING && state != STATE_DONE) {
+            return null;
+        }
+        ByteBuffer record = log.duplicate();
+        record.limit(offset + size);
+        record.position(offset + HEADER_SIZE);
+        byte[] body = new byte[record.remaining()];
+        record.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != log.getInt(offset + LENGTH_SIZE + 1)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        long expiresAt = buffer.getLong();
+        String nodeId = readString(buffer);
+        String path = readString(buffer);
+        if (nodeId == null || path == null) {
+            return null;
+        }
+        return new Entry(nodeId.isEmpty() ? null : nodeId, path, expiresAt, size, HEADER_SIZE + buffer.position(), offset);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        if (buffer.remaining() < 2) {
+            return null;
+        }
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Copies the pending records into a new log of maxBytes, dropping the expired ones, then the oldest
+     * ones when they do not fit. The new log replaces the old one by a rename, so a crash keeps either.
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        int liveBytes = 0;
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.isInFlight && entry.expiresAt <= now) {
+                iterator.remove();
+                expired++;
+            } else {
+                liveBytes += entry.size;
+            }
+        }
+        while (liveBytes > maxBytes) {
+            liveBytes -= entries.remove(0).size;
+            dropped++;
+        }
+        File compactedFile = new File(file.getPath() + ".tmp");
+        // a log left by a crash or a failed rename holds old records past the copied ones, start from a zeroed file
+        if (compactedFile.exists() && !compactedFile.delete()) {
+            throw new IOException("Can not delete " + compactedFile);
+        }
+        MappedByteBuffer compacted = map(compactedFile, maxBytes);
+        ByteBuffer target = compacted.duplicate();
+        for (Entry entry : entries) {
+            ByteBuffer record = log.duplicate();
+            record.limit(entry.offset + entry.size);
+            record.position(entry.offset);
+            target.put(record);
+        }
+        compacted.force();
+        if (!compactedFile.renameTo(file)) {
+            throw new IOException("Can not replace " + file);
+        }
+        int offset = 0;
+        for (Entry entry : entries) {
+            entry.offset = offset;
+            offset += entry.size;
+        }
+        log = compacted;
+        tail = offset;
+        deadBytes = 0;
+        compactions++;
+    }
+
+    private static MappedByteBuffer map(File file, int capacity) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(capacity);
+            // the mapping stays valid once the file is closed
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+}
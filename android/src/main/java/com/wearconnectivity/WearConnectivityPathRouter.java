@@ -0,0 +1,103 @@
+package com.wearconnectivity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of native handlers for incoming messages, keyed by path prefix.
+ * The prefixes are stored in a character trie, so finding the handlers of a path takes O(path length)
+ * whatever the number of handlers. Handlers run before the payload is decoded or a HeadlessJs task started,
+ * a handler returning true consumes the message. A request sent with sendRequest is answered through its responder.
+ * <pre>
+ * WearConnectivityPathRouter.getInstance().register("/ack", (nodeId, path, payload, responder) -&gt; true);
+ * </pre>
+ */
+public final class WearConnectivityPathRouter {
+
+    /**
+     * Handles a message received on a path starting with the registered prefix.
+     * Called on the thread of the MessageClient listener, it must not block.
+     * The payload of a request is passed without its correlation header, and responder answers it,
+     * responder is null when the message is not a request.
+     */
+    public interface Handler {
+        boolean handle(String sourceNodeId, String path, byte[] payload, Responder responder);
+    }
+
+    /**
+     * Sends the response of a request to the node it came from.
+     */
+    public interface Responder {
+        void respond(byte[] payload);
+    }
+
+    private static final class TrieNode {
+        final Map<Character, TrieNode> children = new HashMap<>();
+        Handler handler;
+    }
+
+    private static final WearConnectivityPathRouter INSTANCE = new WearConnectivityPathRouter();
+    private final TrieNode root = new TrieNode();
+
+    public static WearConnectivityPathRouter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the handler of prefix, replacing the previous one.
+     */
+    public synchronized void register(String prefix, Handler handler) {
+        TrieNode node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            TrieNode child = node.children.get(c);
+            if (child == null) {
+                child = new TrieNode();
+                node.children.put(c, child);
+            }
+            node = child;
+        }
+        node.handler = handler;
+    }
+
+    public synchronized void unregister(String prefix) {
+        TrieNode node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node != null) {
+            node.handler = null;
+        }
+    }
+
+    /**
+     * Offers the message to the handlers of the prefixes of path, the longest prefix first.
+     * Returns true when a handler consumed the message.
+     */
+    public boolean route(String sourceNodeId, String path, byte[] payload, Responder responder) {
+        List<Handler> handlers = getHandlers(path);
+        for (int i = handlers.size() - 1; i >= 0; i--) {
+            if (handlers.get(i).handle(sourceNodeId, path, payload, responder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized List<Handler> getHandlers(String path) {
+        List<Handler> handlers = new ArrayList<>(2);
+        TrieNode node = root;
+        for (int i = 0; node != null; i++) {
+            if (node.handler != null) {
+                handlers.add(node.handler);
+            }
+            if (i == path.length()) {
+                break;
+            }
+            node = node.children.get(path.charAt(i));
+        }
+        return handlers;
+    }
+}
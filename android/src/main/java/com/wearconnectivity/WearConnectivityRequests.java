@@ -0,0 +1,99 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table of the requests waiting for a response, keyed by correlation id.
+ * Requests that are not answered within their timeout are failed with a {@link TimeoutException}
+ * and evicted, so a late response is dropped.
+ */
+public class WearConnectivityRequests {
+    public static final long DEFAULT_TIMEOUT_MS = 10000;
+
+    private static class PendingRequest {
+        final String nodeId;
+        final TaskCompletionSource<byte[]> completion = new TaskCompletionSource<>();
+        ScheduledFuture<?> timeout;
+
+        PendingRequest(String nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    // a random start keeps ids unique across restarts of the app while old responses are in flight
+    private final AtomicLong nextCorrelationId = new AtomicLong(new SecureRandom().nextLong());
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong unmatchedResponses = new AtomicLong();
+
+    public long nextCorrelationId() {
+        return nextCorrelationId.getAndIncrement();
+    }
+
+    /**
+     * Registers a request sent to nodeId, the returned task completes with the response payload.
+     */
+    public Task<byte[]> register(long correlationId, String nodeId, long timeoutMs) {
+        PendingRequest request = new PendingRequest(nodeId);
+        pendingRequests.put(correlationId, request);
+        request.timeout = scheduler.schedule(() -> {
+            if (pendingRequests.remove(correlationId, request)) {
+                timedOut.incrementAndGet();
+                request.completion.trySetException(
+                        new TimeoutException("No response to request " + correlationId + " within " + timeoutMs + "ms"));
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        return request.completion.getTask();
+    }
+
+    /**
+     * Routes a response to its request. Returns false when the request is unknown,
+     * already timed out or the response comes from another node.
+     */
+    public boolean complete(long correlationId, String nodeId, byte[] payload) {
+        PendingRequest request = pendingRequests.get(correlationId);
+        if (request == null || !request.nodeId.equals(nodeId) || !pendingRequests.remove(correlationId, request)) {
+            unmatchedResponses.incrementAndGet();
+            return false;
+        }
+        request.timeout.cancel(false);
+        completed.incrementAndGet();
+        request.completion.trySetResult(payload);
+        return true;
+    }
+
+    public void fail(long correlationId, Exception error) {
+        PendingRequest request = pendingRequests.remove(correlationId);
+        if (request != null) {
+            request.timeout.cancel(false);
+            failed.incrementAndGet();
+            request.completion.trySetException(error);
+        }
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("pending", pendingRequests.size());
+        stats.putDouble("completed", completed.get());
+        stats.putDouble("failed", failed.get());
+        stats.putDouble("timedOut", timedOut.get());
+        stats.putDouble("unmatchedResponses", unmatchedResponses.get());
+        return stats;
+    }
+}
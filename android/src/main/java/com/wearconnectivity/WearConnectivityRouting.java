@@ -0,0 +1,124 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.wearable.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks the nodes a message is sent to. In 'all' mode every nearby node receives it.
+ * In 'best' mode only one node does: among the nearby nodes advertising the configured capability,
+ * or all the nearby nodes when none does, the one with the lowest recent send latency.
+ * The latency of a node is an exponentially weighted average of its sends, a node without any send yet is tried first.
+ */
+public class WearConnectivityRouting {
+    public static final String OPTION_MODE = "mode";
+    public static final String OPTION_CAPABILITY = "capability";
+    public static final String MODE_ALL = "all";
+    public static final String MODE_BEST = "best";
+    private static final double LATENCY_SMOOTHING = 0.2;
+    // a failed send counts as this latency, so a failing node loses its rank
+    private static final double FAILURE_LATENCY_MS = 5000;
+
+    private final WearConnectivityNodeRegistry nodeRegistry;
+    private final Map<String, Double> latencies = new HashMap<>();
+    private volatile String mode = MODE_ALL;
+    private volatile String capability;
+
+    public WearConnectivityRouting(WearConnectivityNodeRegistry nodeRegistry) {
+        this.nodeRegistry = nodeRegistry;
+    }
+
+    /**
+     * e.g. { mode: 'best', capability: 'my_watch_app' }, a null capability selects among every nearby node.
+     */
+    public void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        if (options.hasKey(OPTION_MODE)) {
+            String newMode = options.getString(OPTION_MODE);
+            if (!MODE_ALL.equals(newMode) && !MODE_BEST.equals(newMode)) {
+                throw new IllegalArgumentException("Unknown routing mode: " + newMode);
+            }
+            mode = newMode;
+        }
+        if (options.hasKey(OPTION_CAPABILITY)) {
+            capability = options.isNull(OPTION_CAPABILITY) ? null : options.getString(OPTION_CAPABILITY);
+        }
+    }
+
+    /**
+     * Returns the nodes a message goes to: every nearby node in 'all' mode, the best nearby node in 'best' mode.
+     */
+    public List<Node> getTargets(List<Node> connectedNodes) {
+        if (MODE_BEST.equals(mode)) {
+            Node node = getBestNode(connectedNodes);
+            return node != null ? Collections.singletonList(node) : Collections.emptyList();
+        }
+        List<Node> nearbyNodes = new ArrayList<>();
+        for (Node node : connectedNodes) {
+            if (node.isNearby()) {
+                nearbyNodes.add(node);
+            }
+        }
+        return nearbyNodes;
+    }
+
+    /**
+     * Returns the nearby node with the capability and the lowest latency, or null when no node is nearby.
+     */
+    public Node getBestNode(List<Node> connectedNodes) {
+        String currentCapability = capability;
+        Set<String> capableNodeIds = currentCapability != null ? nodeRegistry.getCapabilityNodeIds(currentCapability) : null;
+        Node best = null;
+        boolean isBestCapable = false;
+        double bestLatency = 0;
+        synchronized (latencies) {
+            for (Node node : connectedNodes) {
+                if (!node.isNearby()) {
+                    continue;
+                }
+                boolean isCapable = capableNodeIds != null && capableNodeIds.contains(node.getId());
+                Double latency = latencies.get(node.getId());
+                double nodeLatency = latency != null ? latency : 0;
+                if (best == null || (isCapable && !isBestCapable)
+                        || (isCapable == isBestCapable && nodeLatency < bestLatency)) {
+                    best = node;
+                    isBestCapable = isCapable;
+                    bestLatency = nodeLatency;
+                }
+            }
+        }
+        return best;
+    }
+
+    public void recordSend(String nodeId, boolean isSuccessful, long latencyMs) {
+        double sample = isSuccessful ? latencyMs : FAILURE_LATENCY_MS;
+        synchronized (latencies) {
+            Double latency = latencies.get(nodeId);
+            latencies.put(nodeId, latency == null ? sample : latency + LATENCY_SMOOTHING * (sample - latency));
+        }
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putString("mode", mode);
+        stats.putString("capability", capability);
+        WritableMap nodeLatencies = Arguments.createMap();
+        synchronized (latencies) {
+            for (Map.Entry<String, Double> entry : latencies.entrySet()) {
+                nodeLatencies.putDouble(entry.getKey(), entry.getValue());
+            }
+        }
+        stats.putMap("latencyMs", nodeLatencies);
+        return stats;
+    }
+}
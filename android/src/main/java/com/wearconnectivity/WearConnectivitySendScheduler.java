@@ -0,0 +1,334 @@
+package com.wearconnectivity;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+/**
+ * Opt-in scheduling of the outgoing messages, DataItems and files in three lanes:
+ * control for requests, responses and urgent DataItems, normal for messages and DataItems,
+ * bulk for files and fragmented messages. A send starts while fewer than maxInFlight sends run in total
+ * and in its lane, the lanes taking the free slots in proportion to their weight (smooth weighted round robin),
+ * so a burst of bulk or normal sends can not take every slot from the control sends.
+ * The lane of a path can be overridden by prefix, e.g. { paths: { '/control': 'control' } }.
+ */
+public final class WearConnectivitySendScheduler {
+    public static final String LANE_CONTROL = "control";
+    public static final String LANE_NORMAL = "normal";
+    public static final String LANE_BULK = "bulk";
+    public static final String OPTION_ENABLED = "enabled";
+    public static final String OPTION_MAX_IN_FLIGHT = "maxInFlight";
+    public static final String OPTION_LANES = "lanes";
+    public static final String OPTION_WEIGHT = "weight";
+    public static final String OPTION_PATHS = "paths";
+    public static final String OPTION_BULK_YIELD_MS = "bulkYieldMs";
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    public static final long DEFAULT_BULK_YIELD_MS = 100;
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    /**
+     * Starts a send once the scheduler picked it.
+     */
+    public interface Operation<T> {
+        Task<T> start();
+    }
+
+    private static final class Lane {
+        int weight;
+        int maxInFlight;
+        final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+        int inFlight;
+        int currentWeight;
+        long started;
+        long completed;
+        long failed;
+        long totalWaitMs;
+        long maxWaitMs;
+
+        Lane(int weight, int maxInFlight) {
+            this.weight = weight;
+            this.maxInFlight = maxInFlight;
+        }
+    }
+
+    private static final class Pending<T> {
+        final Lane lane;
+        final Operation<T> operation;
+        final TaskCompletionSource<T> completion = new TaskCompletionSource<>();
+        final long queuedTime = SystemClock.elapsedRealtime();
+
+        Pending(Lane lane, Operation<T> operation) {
+            this.lane = lane;
+            this.operation = operation;
+        }
+    }
+
+    private static final WearConnectivitySendScheduler INSTANCE = new WearConnectivitySendScheduler();
+    // iteration order breaks weight ties in favor of the control lane
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    private volatile Map<String, String> pathLanes = Collections.emptyMap();
+    private volatile boolean enabled;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private long bulkYieldMs = DEFAULT_BULK_YIELD_MS;
+    private int inFlight;
+    private long bulkYields;
+    private long bulkYieldTimeMs;
+
+    private WearConnectivitySendScheduler() {
+        lanes.put(LANE_CONTROL, new Lane(8, 4));
+        lanes.put(LANE_NORMAL, new Lane(4, 4));
+        lanes.put(LANE_BULK, new Lane(1, 1));
+    }
+
+    public static WearConnectivitySendScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * e.g. { enabled: true, maxInFlight: 8, lanes: { bulk: { weight: 1, maxInFlight: 1 } }, paths: { '/control': 'control' } }.
+     * Disabling the scheduler starts the queued sends right away.
+     */
+    public void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        Map<String, String> newPathLanes = null;
+        if (options.hasKey(OPTION_PATHS)) {
+            newPathLanes = new HashMap<>();
+            ReadableMap paths = options.getMap(OPTION_PATHS);
+            ReadableMapKeySetIterator iterator = paths.keySetIterator();
+            while (iterator.hasNextKey()) {
+                String prefix = iterator.nextKey();
+                String lane = paths.getString(prefix);
+                checkLane(lane);
+                newPathLanes.put(prefix, lane);
+            }
+        }
+        ReadableMap laneOptions = options.hasKey(OPTION_LANES) ? options.getMap(OPTION_LANES) : null;
+        if (laneOptions != null) {
+            ReadableMapKeySetIterator iterator = laneOptions.keySetIterator();
+            while (iterator.hasNextKey()) {
+                checkLane(iterator.nextKey());
+            }
+        }
+        synchronized (this) {
+            if (laneOptions != null) {
+                ReadableMapKeySetIterator iterator = laneOptions.keySetIterator();
+                while (iterator.hasNextKey()) {
+                    String name = iterator.nextKey();
+                    ReadableMap laneOption = laneOptions.getMap(name);
+                    Lane lane = lanes.get(name);
+                    if (laneOption.hasKey(OPTION_WEIGHT)) {
+                        lane.weight = Math.max(1, laneOption.getInt(OPTION_WEIGHT));
+                    }
+                    if (laneOption.hasKey(OPTION_MAX_IN_FLIGHT)) {
+                        lane.maxInFlight = Math.max(1, laneOption.getInt(OPTION_MAX_IN_FLIGHT));
+                    }
+                }
+            }
+            if (newPathLanes != null) {
+                pathLanes = newPathLanes;
+            }
+            if (options.hasKey(OPTION_MAX_IN_FLIGHT)) {
+                maxInFlight = Math.max(1, options.getInt(OPTION_MAX_IN_FLIGHT));
+            }
+            if (options.hasKey(OPTION_BULK_YIELD_MS)) {
+                bulkYieldMs = Math.max(0, (long) options.getDouble(OPTION_BULK_YIELD_MS));
+            }
+            if (options.hasKey(OPTION_ENABLED)) {
+                enabled = options.getBoolean(OPTION_ENABLED);
+            }
+            notifyAll();
+        }
+        dispatch();
+    }
+
+    private void checkLane(String lane) {
+        if (!lanes.containsKey(lane)) {
+            throw new IllegalArgumentException("Unknown lane: " + lane);
+        }
+    }
+
+    /**
+     * Returns the lane of the longest configured prefix of path, or defaultLane.
+     */
+    public String getLane(String path, String defaultLane) {
+        String lane = defaultLane;
+        int prefixLength = -1;
+        if (path != null) {
+            for (Map.Entry<String, String> entry : pathLanes.entrySet()) {
+                if (entry.getKey().length() > prefixLength && path.startsWith(entry.getKey())) {
+                    lane = entry.getValue();
+                    prefixLength = entry.getKey().length();
+                }
+            }
+        }
+        return lane;
+    }
+
+    /**
+     * Starts the operation once its lane gets a slot, or right away when the scheduler is disabled.
+     * The returned task completes with the task of the operation.
+     */
+    public <T> Task<T> submit(String laneName, Operation<T> operation) {
+        Pending<T> pending;
+        synchronized (this) {
+            if (!enabled) {
+                pending = null;
+            } else {
+                Lane lane = lanes.get(laneName);
+                pending = new Pending<>(lane != null ? lane : lanes.get(LANE_NORMAL), operation);
+                pending.lane.queue.add(pending);
+            }
+        }
+        if (pending == null) {
+            return startOperation(operation);
+        }
+        dispatch();
+        return pending.completion.getTask();
+    }
+
+    /**
+     * Called by bulk transfers between two writes, waits at most bulkYieldMs while control sends are queued or running.
+     */
+    public synchronized void yieldToControl() throws InterruptedException {
+        Lane control = lanes.get(LANE_CONTROL);
+        if (!enabled || (control.inFlight == 0 && control.queue.isEmpty())) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        long remaining = bulkYieldMs;
+        while (remaining > 0 && enabled && (control.inFlight > 0 || !control.queue.isEmpty())) {
+            wait(remaining);
+            remaining = bulkYieldMs - (SystemClock.elapsedRealtime() - start);
+        }
+        bulkYields++;
+        bulkYieldTimeMs += SystemClock.elapsedRealtime() - start;
+    }
+
+    /**
+     * Starts the sends picked for the free slots, outside the lock so an operation completing
+     * synchronously can dispatch the next one.
+     */
+    private void dispatch() {
+        List<Pending<?>> picked = new ArrayList<>();
+        synchronized (this) {
+            Pending<?> pending;
+            while ((pending = poll()) != null) {
+                picked.add(pending);
+            }
+        }
+        for (Pending<?> pending : picked) {
+            start(pending);
+        }
+    }
+
+    /**
+     * Picks the next send with smooth weighted round robin among the lanes that have a free slot.
+     */
+    private Pending<?> poll() {
+        if (enabled && inFlight >= maxInFlight) {
+            return null;
+        }
+        Lane selected = null;
+        int totalWeight = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane.queue.isEmpty() || (enabled && lane.inFlight >= lane.maxInFlight)) {
+                continue;
+            }
+            lane.currentWeight += lane.weight;
+            totalWeight += lane.weight;
+            if (selected == null || lane.currentWeight > selected.currentWeight) {
+                selected = lane;
+            }
+        }
+        if (selected == null) {
+            return null;
+        }
+        selected.currentWeight -= totalWeight;
+        Pending<?> pending = selected.queue.poll();
+        long waitMs = SystemClock.elapsedRealtime() - pending.queuedTime;
+        selected.inFlight++;
+        selected.started++;
+        selected.totalWaitMs += waitMs;
+        selected.maxWaitMs = Math.max(selected.maxWaitMs, waitMs);
+        inFlight++;
+        return pending;
+    }
+
+    private <T> void start(Pending<T> pending) {
+        startOperation(pending.operation).addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+            finish(pending.lane, task.isSuccessful());
+            if (task.isSuccessful()) {
+                pending.completion.trySetResult(task.getResult());
+            } else {
+                Exception error = task.getException();
+                pending.completion.trySetException(error != null ? error : new CancellationException("send canceled"));
+            }
+        });
+    }
+
+    private static <T> Task<T> startOperation(Operation<T> operation) {
+        try {
+            return operation.start();
+        } catch (Exception e) {
+            return Tasks.forException(e);
+        }
+    }
+
+    private void finish(Lane lane, boolean isSuccessful) {
+        synchronized (this) {
+            lane.inFlight--;
+            inFlight--;
+            if (isSuccessful) {
+                lane.completed++;
+            } else {
+                lane.failed++;
+            }
+            notifyAll();
+        }
+        dispatch();
+    }
+
+    public synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putBoolean("enabled", enabled);
+        stats.putDouble("inFlight", inFlight);
+        stats.putDouble("maxInFlight", maxInFlight);
+        stats.putDouble("bulkYields", bulkYields);
+        stats.putDouble("bulkYieldTimeMs", bulkYieldTimeMs);
+        WritableMap laneStats = Arguments.createMap();
+        for (Map.Entry<String, Lane> entry : lanes.entrySet()) {
+            Lane lane = entry.getValue();
+            WritableMap map = Arguments.createMap();
+            map.putDouble("weight", lane.weight);
+            map.putDouble("maxInFlight", lane.maxInFlight);
+            map.putDouble("queued", lane.queue.size());
+            map.putDouble("inFlight", lane.inFlight);
+            map.putDouble("started", lane.started);
+            map.putDouble("completed", lane.completed);
+            map.putDouble("failed", lane.failed);
+            map.putDouble("avgWaitMs", lane.started > 0 ? (double) lane.totalWaitMs / lane.started : 0);
+            map.putDouble("maxWaitMs", lane.maxWaitMs);
+            laneStats.putMap(entry.getKey(), map);
+        }
+        stats.putMap("lanes", laneStats);
+        return stats;
+    }
+}
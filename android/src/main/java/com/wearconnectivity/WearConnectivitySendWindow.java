@@ -0,0 +1,294 @@
+package com.wearconnectivity;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Opt-in sliding window of the MessageClient sends in flight to every node, so a producer sending
+ * faster than the link can not pile up an unbounded number of Tasks in Play Services.
+ * A send is a whole message or batch frame, all the fragments of a fragmented message take a single slot.
+ * A send starts while fewer than maxInFlight sends to its node run. When the window is full the policy applies:
+ * 'queue' waits for a free slot, rejecting the send when maxQueued sends already wait,
+ * 'dropOldest' waits too but fails the oldest waiting send to make room,
+ * 'reject' fails the send right away.
+ * Rejected sends fail with a RejectedExecutionException, dropped ones with a CancellationException.
+ * The listener is told when a node becomes congested (its window is full) and when it drains below half of it,
+ * so the producers can slow down.
+ */
+public class WearConnectivitySendWindow implements WearConnectivityMessageBatcher.Sender {
+    public static final String OPTION_ENABLED = "enabled";
+    public static final String OPTION_MAX_IN_FLIGHT = "maxInFlight";
+    public static final String OPTION_MAX_QUEUED = "maxQueued";
+    public static final String OPTION_POLICY = "policy";
+    public static final String POLICY_QUEUE = "queue";
+    public static final String POLICY_DROP_OLDEST = "dropOldest";
+    public static final String POLICY_REJECT = "reject";
+    public static final String WINDOW_EVENT = "SendWindowEvent";
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final int DEFAULT_MAX_QUEUED = 256;
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    /**
+     * Receives the { nodeId, congested, inFlight, queued } state of a node, with the total rejected and dropped sends,
+     * when the node becomes congested or drains.
+     */
+    public interface Listener {
+        void onCongestionChanged(WritableMap state);
+    }
+
+    private static final class NodeWindow {
+        final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+        int inFlight;
+        boolean isCongested;
+    }
+
+    private static final class Pending<T> {
+        final String nodeId;
+        final WearConnectivitySendScheduler.Operation<T> operation;
+        final TaskCompletionSource<T> completion = new TaskCompletionSource<>();
+
+        Pending(String nodeId, WearConnectivitySendScheduler.Operation<T> operation) {
+            this.nodeId = nodeId;
+            this.operation = operation;
+        }
+    }
+
+    private final WearConnectivityMessageBatcher.Sender sender;
+    // windows of the nodes with sends in flight or waiting, removed once idle
+    private final Map<String, NodeWindow> windows = new HashMap<>();
+    private volatile boolean enabled;
+    private volatile Listener listener;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+    private String policy = POLICY_QUEUE;
+    private long queuedSends;
+    private long rejected;
+    private long dropped;
+    private int maxQueueDepth;
+
+    public WearConnectivitySendWindow(WearConnectivityMessageBatcher.Sender sender) {
+        this.sender = sender;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * e.g. { enabled: true, maxInFlight: 16, maxQueued: 256, policy: 'dropOldest' }.
+     * Disabling the window starts the waiting sends right away.
+     */
+    public void configure(ReadableMap options) {
+        if (options == null) {
+            return;
+        }
+        String newPolicy = options.hasKey(OPTION_POLICY) ? options.getString(OPTION_POLICY) : null;
+        if (newPolicy != null && !POLICY_QUEUE.equals(newPolicy) && !POLICY_DROP_OLDEST.equals(newPolicy)
+                && !POLICY_REJECT.equals(newPolicy)) {
+            throw new IllegalArgumentException("Unknown send window policy: " + newPolicy);
+        }
+        List<String> nodeIds;
+        synchronized (this) {
+            if (newPolicy != null) {
+                policy = newPolicy;
+            }
+            if (options.hasKey(OPTION_MAX_IN_FLIGHT)) {
+                maxInFlight = Math.max(1, options.getInt(OPTION_MAX_IN_FLIGHT));
+            }
+            if (options.hasKey(OPTION_MAX_QUEUED)) {
+                maxQueued = Math.max(1, options.getInt(OPTION_MAX_QUEUED));
+            }
+            if (options.hasKey(OPTION_ENABLED)) {
+                enabled = options.getBoolean(OPTION_ENABLED);
+            }
+            nodeIds = new ArrayList<>(windows.keySet());
+        }
+        // start the sends that fit in the new window
+        for (String nodeId : nodeIds) {
+            dispatch(nodeId);
+        }
+    }
+
+    @Override
+    public Task<Integer> send(String nodeId, String path, byte[] data) {
+        return submit(nodeId, () -> sender.send(nodeId, path, data));
+    }
+
+    /**
+     * Starts the operation once the window of nodeId has a free slot, or right away when the window is disabled.
+     * The returned task completes with the task of the operation.
+     */
+    public <T> Task<T> submit(String nodeId, WearConnectivitySendScheduler.Operation<T> operation) {
+        if (!enabled) {
+            return startOperation(operation);
+        }
+        Pending<T> pending = new Pending<>(nodeId, operation);
+        Pending<?> droppedPending = null;
+        boolean isStarted = false;
+        boolean isRejected = false;
+        WritableMap state;
+        synchronized (this) {
+            NodeWindow window = windows.get(nodeId);
+            if (window == null) {
+                window = new NodeWindow();
+                windows.put(nodeId, window);
+            }
+            if (window.inFlight < maxInFlight && window.queue.isEmpty()) {
+                window.inFlight++;
+                isStarted = true;
+            } else if (POLICY_REJECT.equals(policy) || (POLICY_QUEUE.equals(policy) && window.queue.size() >= maxQueued)) {
+                rejected++;
+                isRejected = true;
+            } else {
+                if (window.queue.size() >= maxQueued) {
+                    droppedPending = window.queue.poll();
+                    dropped++;
+                }
+                window.queue.add(pending);
+                queuedSends++;
+                maxQueueDepth = Math.max(maxQueueDepth, window.queue.size());
+            }
+            state = updateCongestion(nodeId, window);
+        }
+        notifyListener(state);
+        if (droppedPending != null) {
+            droppedPending.completion.trySetException(
+                    new CancellationException("Send dropped by the full send window of node " + nodeId));
+        }
+        if (isRejected) {
+            return Tasks.forException(new RejectedExecutionException("Send window of node " + nodeId + " is full"));
+        }
+        if (isStarted) {
+            start(pending);
+        }
+        return pending.completion.getTask();
+    }
+
+    private <T> void start(Pending<T> pending) {
+        startOperation(pending.operation).addOnCompleteListener(DIRECT_EXECUTOR, task -> {
+            finish(pending.nodeId);
+            if (task.isSuccessful()) {
+                pending.completion.trySetResult(task.getResult());
+            } else {
+                Exception error = task.getException();
+                pending.completion.trySetException(error != null ? error : new CancellationException("send canceled"));
+            }
+        });
+    }
+
+    private static <T> Task<T> startOperation(WearConnectivitySendScheduler.Operation<T> operation) {
+        try {
+            return operation.start();
+        } catch (Exception e) {
+            return Tasks.forException(e);
+        }
+    }
+
+    private void finish(String nodeId) {
+        synchronized (this) {
+            windows.get(nodeId).inFlight--;
+        }
+        dispatch(nodeId);
+    }
+
+    /**
+     * Starts the waiting sends of nodeId that fit in its window, outside the lock so an operation
+     * completing synchronously can start the next one.
+     */
+    private void dispatch(String nodeId) {
+        List<Pending<?>> picked = new ArrayList<>();
+        WritableMap state;
+        synchronized (this) {
+            NodeWindow window = windows.get(nodeId);
+            if (window == null) {
+                return;
+            }
+            while (!window.queue.isEmpty() && (!enabled || window.inFlight < maxInFlight)) {
+                picked.add(window.queue.poll());
+                window.inFlight++;
+            }
+            state = updateCongestion(nodeId, window);
+            if (window.inFlight == 0 && window.queue.isEmpty()) {
+                windows.remove(nodeId);
+            }
+        }
+        notifyListener(state);
+        for (Pending<?> pending : picked) {
+            start(pending);
+        }
+    }
+
+    /**
+     * A node is congested once its window is full, until it drains below half of it.
+     * Returns the state of the node when it changed, null otherwise.
+     */
+    private WritableMap updateCongestion(String nodeId, NodeWindow window) {
+        boolean isCongested = window.isCongested;
+        if (window.inFlight >= maxInFlight || !window.queue.isEmpty()) {
+            isCongested = true;
+        } else if (window.inFlight <= maxInFlight / 2) {
+            isCongested = false;
+        }
+        if (isCongested == window.isCongested) {
+            return null;
+        }
+        window.isCongested = isCongested;
+        WritableMap state = Arguments.createMap();
+        state.putString("nodeId", nodeId);
+        state.putBoolean("congested", isCongested);
+        state.putDouble("inFlight", window.inFlight);
+        state.putDouble("queued", window.queue.size());
+        state.putDouble("rejected", rejected);
+        state.putDouble("dropped", dropped);
+        return state;
+    }
+
+    private void notifyListener(WritableMap state) {
+        Listener currentListener = listener;
+        if (state != null && currentListener != null) {
+            currentListener.onCongestionChanged(state);
+        }
+    }
+
+    public synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putBoolean("enabled", enabled);
+        stats.putString("policy", policy);
+        stats.putDouble("maxInFlight", maxInFlight);
+        stats.putDouble("maxQueued", maxQueued);
+        int inFlight = 0;
+        int queued = 0;
+        WritableMap nodeStats = Arguments.createMap();
+        for (Map.Entry<String, NodeWindow> entry : windows.entrySet()) {
+            NodeWindow window = entry.getValue();
+            inFlight += window.inFlight;
+            queued += window.queue.size();
+            WritableMap map = Arguments.createMap();
+            map.putDouble("inFlight", window.inFlight);
+            map.putDouble("queued", window.queue.size());
+            map.putBoolean("congested", window.isCongested);
+            nodeStats.putMap(entry.getKey(), map);
+        }
+        stats.putDouble("inFlight", inFlight);
+        stats.putDouble("queued", queued);
+        stats.putDouble("queuedSends", queuedSends);
+        stats.putDouble("maxQueueDepth", maxQueueDepth);
+        stats.putDouble("rejected", rejected);
+        stats.putDouble("dropped", dropped);
+        stats.putMap("nodes", nodeStats);
+        return stats;
+    }
+}
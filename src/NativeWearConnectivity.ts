@@ -3,7 +3,10 @@ import { TurboModuleRegistry } from 'react-native';
 
 // Messages
 export type Payload = {};
-export type DataOptions = {};
+export type DataOptions = {
+  urgent?: boolean;
+  delta?: boolean;
+};
 export type ReplyCallback = (reply: Payload) => void;
 export type ErrorCallback = (err: string) => void;
 
@@ -20,14 +23,408 @@ export type SendMessageWithPath = (
   errCb: ErrorCallback
 ) => void;
 
+export type SendMessageResult = {
+  nodeId: string;
+  displayName: string | null;
+  success: boolean;
+  queued: boolean;
+  requestId?: number;
+  error: string | null;
+};
+
+export type SendMessageAsync = (
+  path: string | null,
+  message: Payload
+) => Promise<SendMessageResult[]>;
+
+export type SendRequest = (
+  path: string,
+  message: Payload,
+  timeoutMs?: number
+) => Promise<Payload>;
+
+export type SendResponse = (
+  nodeId: string,
+  path: string,
+  requestId: string,
+  message: Payload
+) => Promise<number>;
+
+/**
+ * Added under the wearConnectivityRequest key of a received message sent with sendRequest.
+ */
+export type IncomingRequest = {
+  id: string;
+  nodeId: string;
+  path: string;
+};
+
+export type RequestStats = {
+  pending: number;
+  completed: number;
+  failed: number;
+  timedOut: number;
+  unmatchedResponses: number;
+};
+
+export type GetRequestStats = () => Promise<RequestStats>;
+
+export type BatchingOptions = {
+  enabled?: boolean;
+  flushIntervalMs?: number;
+  maxFrameBytes?: number;
+};
+
+export type ConfigureBatching = (options: BatchingOptions) => void;
+
+export type FragmentationOptions = {
+  enabled?: boolean;
+  maxMessageBytes?: number;
+  maxBufferedBytes?: number;
+  maxPayloadBytes?: number;
+  reassemblyTimeoutMs?: number;
+};
+
+export type ConfigureFragmentation = (options: FragmentationOptions) => void;
+
+export type FragmentationStats = {
+  fragmentedMessages: number;
+  fragmentsSent: number;
+  rejectedMessages: number;
+  reassembledMessages: number;
+  timedOutMessages: number;
+  evictedMessages: number;
+  pendingMessages: number;
+  bufferedBytes: number;
+};
+
+export type GetFragmentationStats = () => Promise<FragmentationStats>;
+
+export type InboundBatchingOptions = {
+  batchWindowMs?: number;
+  maxBatchSize?: number;
+  maxBatchBytes?: number;
+};
+
+export type ConfigureInboundBatching = (options: InboundBatchingOptions) => void;
+
+export type DeliveryMode = 'auto' | 'headless';
+
+export type DeliveryOptions = {
+  mode?: DeliveryMode;
+};
+
+export type ConfigureDelivery = (options: DeliveryOptions) => Promise<void>;
+
+export type OutboxOptions = {
+  enabled?: boolean;
+  maxBytes?: number;
+  ttlMs?: number;
+  maxBatchSize?: number;
+  initialBackoffMs?: number;
+  maxBackoffMs?: number;
+};
+
+export type ConfigureOutbox = (options: OutboxOptions) => Promise<void>;
+
+export type OutboxStats = {
+  enabled: boolean;
+  pending: number;
+  bytes: number;
+  logBytes: number;
+  maxBytes: number;
+  enqueued: number;
+  delivered: number;
+  retries: number;
+  expired: number;
+  dropped: number;
+  compactions: number;
+};
+
+export type GetOutboxStats = () => Promise<OutboxStats>;
+
+export type SendMessageToNode = (
+  nodeId: string,
+  path: string | null,
+  message: Payload
+) => Promise<SendMessageResult>;
+
+export type RoutingMode = 'all' | 'best';
+
+export type RoutingOptions = {
+  mode?: RoutingMode;
+  capability?: string | null;
+};
+
+export type RoutingStats = {
+  mode: RoutingMode;
+  capability: string | null;
+  latencyMs: { [nodeId: string]: number };
+};
+
+export type ConfigureRouting = (options: RoutingOptions) => Promise<void>;
+export type GetRoutingStats = () => Promise<RoutingStats>;
+
+export type SendWindowPolicy = 'queue' | 'dropOldest' | 'reject';
+
+export type SendWindowOptions = {
+  enabled?: boolean;
+  maxInFlight?: number;
+  maxQueued?: number;
+  policy?: SendWindowPolicy;
+};
+
+export type NodeSendWindow = {
+  inFlight: number;
+  queued: number;
+  congested: boolean;
+};
+
+export type SendWindowStats = {
+  enabled: boolean;
+  policy: SendWindowPolicy;
+  maxInFlight: number;
+  maxQueued: number;
+  inFlight: number;
+  queued: number;
+  queuedSends: number;
+  maxQueueDepth: number;
+  rejected: number;
+  dropped: number;
+  nodes: { [nodeId: string]: NodeSendWindow };
+};
+
+export type SendWindowEvent = {
+  nodeId: string;
+  congested: boolean;
+  inFlight: number;
+  queued: number;
+  rejected: number;
+  dropped: number;
+};
+
+export type ConfigureSendWindow = (options: SendWindowOptions) => Promise<void>;
+export type GetSendWindowStats = () => Promise<SendWindowStats>;
+export type WatchSendWindow = (
+  callback: (event: SendWindowEvent) => void
+) => () => void;
+
+export type PayloadEncoding = 'json' | 'binary' | 'auto';
+
+export type CodecOptions = {
+  encoding?: PayloadEncoding;
+};
+
+export type ConfigureCodec = (options: CodecOptions) => Promise<void>;
+
 export type SendData = (
   path: String,
   message: Payload,
   options?: DataOptions
 ) => Promise<string>;
 
+export type DeltaSyncStats = {
+  skippedWrites: number;
+  fullWrites: number;
+  patchWrites: number;
+  patchedKeys: number;
+  paths: number;
+};
+
+export type GetDeltaSyncStats = () => Promise<DeltaSyncStats>;
+
+export type CachedDataItem = {
+  path: string;
+  data: Payload;
+};
+
+export type DataChange = {
+  type: 'changed' | 'deleted';
+  path: string;
+  // the node that wrote the item, never this device
+  nodeId: string;
+  data: Payload | null;
+};
+
+export type WatchDataChanges = (
+  prefix: string,
+  callback: (changes: DataChange[]) => void
+) => () => void;
+
+export type GetDataItem = (path: string) => Promise<Payload | null>;
+
+export type GetDataItems = (prefix: string) => Promise<CachedDataItem[]>;
+
+export type DataCacheOptions = {
+  maxEntries?: number;
+  maxBytes?: number;
+};
+
+export type ConfigureDataCache = (options: DataCacheOptions) => void;
+
+export type DataCacheStats = {
+  hits: number;
+  misses: number;
+  evictions: number;
+  entries: number;
+  bytes: number;
+};
+
+export type GetDataCacheStats = () => Promise<DataCacheStats>;
+
 export type SendFile = (file: string, metadata: unknown) => Promise<any>;
 
+export type CompressionOptions = {
+  enabled?: boolean;
+  minSizeBytes?: number;
+  level?: number;
+  algorithm?: 'deflate';
+};
+
+export type ConfigureCompression = (
+  options: CompressionOptions
+) => Promise<void>;
+
+export type CompressionStats = {
+  enabled: boolean;
+  compressed: number;
+  skipped: number;
+  originalBytes: number;
+  compressedBytes: number;
+  ratio: number;
+  compressTimeMs: number;
+  decompressed: number;
+  decompressTimeMs: number;
+};
+
+export type GetCompressionStats = () => Promise<{
+  messages: CompressionStats;
+  dataItems: CompressionStats;
+}>;
+
+export type FileTransferOptions = {
+  channelThresholdBytes?: number;
+  progressIntervalMs?: number;
+  progressStepBytes?: number;
+  maxConcurrentTransfers?: number;
+};
+
+export type ConfigureFileTransfer = (options: FileTransferOptions) => void;
+
+export type ActiveFileTransfer = {
+  id: string;
+  fileName: string;
+  startTime: number;
+  completedUnitCount: number;
+  totalUnitCount: number;
+  fractionCompleted: number;
+  throughput: number;
+};
+
+export type GetActiveFileTransfers = () => Promise<ActiveFileTransfer[]>;
+
+// Node registry
+export type NodeRegistryOptions = {
+  ttlMs?: number;
+};
+
+export type NodeRegistryStats = {
+  hits: number;
+  staleHits: number;
+  misses: number;
+  refreshes: number;
+  refreshFailures: number;
+  // cause of the last failed refresh, null once a refresh succeeds
+  failure: 'playServices' | 'wearableApi' | 'fetch' | null;
+  nodeCount: number;
+  ageMs: number;
+  ttlMs: number;
+};
+
+export type GetNodeRegistryStats = () => Promise<NodeRegistryStats>;
+export type ConfigureNodeRegistry = (options: NodeRegistryOptions) => void;
+
+// Metrics
+export type MetricsOptions = {
+  snapshotIntervalMs?: number;
+};
+
+export type LatencyHistogram = {
+  bucketsMs: number[];
+  counts: number[];
+  count: number;
+  sumMs: number;
+  maxMs: number;
+  p50Ms: number;
+  p95Ms: number;
+  p99Ms: number;
+};
+
+export type PathMetrics = {
+  sends: number;
+  successes: number;
+  failures: number;
+  bytesOut: number;
+  received: number;
+  bytesIn: number;
+  headlessMessages: number;
+  fileTransfers: number;
+  fileBytes: number;
+  fileBytesPerSecond: number;
+  latency: LatencyHistogram;
+};
+
+export type Metrics = {
+  startTime: number;
+  timestamp: number;
+  headlessTaskStarts: number;
+  paths: { [path: string]: PathMetrics };
+};
+
+export type GetMetrics = () => Promise<Metrics>;
+export type ConfigureMetrics = (options: MetricsOptions) => void;
+export type WatchMetrics = (callback: (metrics: Metrics) => void) => () => void;
+
+// Send scheduler
+export type SendLane = 'control' | 'normal' | 'bulk';
+
+export type LaneOptions = {
+  weight?: number;
+  maxInFlight?: number;
+};
+
+export type SchedulerOptions = {
+  enabled?: boolean;
+  maxInFlight?: number;
+  bulkYieldMs?: number;
+  lanes?: { [lane in SendLane]?: LaneOptions };
+  paths?: { [pathPrefix: string]: SendLane };
+};
+
+export type LaneStats = {
+  weight: number;
+  maxInFlight: number;
+  queued: number;
+  inFlight: number;
+  started: number;
+  completed: number;
+  failed: number;
+  avgWaitMs: number;
+  maxWaitMs: number;
+};
+
+export type SchedulerStats = {
+  enabled: boolean;
+  inFlight: number;
+  maxInFlight: number;
+  bulkYields: number;
+  bulkYieldTimeMs: number;
+  lanes: { [lane in SendLane]: LaneStats };
+};
+
+export type ConfigureScheduler = (options: SchedulerOptions) => Promise<void>;
+export type GetSchedulerStats = () => Promise<SchedulerStats>;
+
 export interface Spec extends TurboModule {
   sendMessage: SendMessage;
   sendFile: SendFile;
@@ -4,6 +4,7 @@ const IOS_NOT_SUPPORTED_WARNING =
 
 const DataOptionKey = {
   URGENT: 'urgent',
+  DELTA: 'delta',
 };
 
 export { LIBRARY_NAME, IOS_NOT_SUPPORTED_WARNING, DataOptionKey };
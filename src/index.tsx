@@ -2,12 +2,92 @@ import { AppRegistry } from 'react-native';
 import { NativeModules, Platform } from 'react-native';
 import { DataOptionKey } from './constants';
 import { watchEvents } from './subscriptions';
-import { sendMessage, sendMessageWithPath } from './messages';
+import {
+  sendMessage,
+  sendMessageWithPath,
+  sendMessageAsync,
+  sendRequest,
+  sendResponse,
+  getRequestStats,
+  configureBatching,
+  configureFragmentation,
+  getFragmentationStats,
+  configureInboundBatching,
+  configureDelivery,
+  configureCodec,
+  configureOutbox,
+  getOutboxStats,
+  sendMessageToNode,
+  configureRouting,
+  getRoutingStats,
+  configureSendWindow,
+  getSendWindowStats,
+} from './messages';
 import type {
   ReplyCallback,
   ErrorCallback,
   SendFile,
   SendData,
+  ConfigureFileTransfer,
+  FileTransferOptions,
+  GetActiveFileTransfers,
+  GetDeltaSyncStats,
+  WatchDataChanges,
+  DataChange,
+  GetDataItem,
+  GetDataItems,
+  ConfigureDataCache,
+  GetDataCacheStats,
+  CachedDataItem,
+  DataCacheOptions,
+  DataCacheStats,
+  DeltaSyncStats,
+  DataOptions,
+  ConfigureCompression,
+  GetCompressionStats,
+  CompressionOptions,
+  CompressionStats,
+  ActiveFileTransfer,
+  GetNodeRegistryStats,
+  ConfigureNodeRegistry,
+  NodeRegistryOptions,
+  NodeRegistryStats,
+  GetMetrics,
+  ConfigureMetrics,
+  WatchMetrics,
+  Metrics,
+  MetricsOptions,
+  PathMetrics,
+  LatencyHistogram,
+  ConfigureScheduler,
+  GetSchedulerStats,
+  SchedulerOptions,
+  SchedulerStats,
+  SendLane,
+  LaneOptions,
+  LaneStats,
+  SendMessageResult,
+  IncomingRequest,
+  RequestStats,
+  BatchingOptions,
+  FragmentationOptions,
+  FragmentationStats,
+  InboundBatchingOptions,
+  DeliveryMode,
+  DeliveryOptions,
+  CodecOptions,
+  PayloadEncoding,
+  OutboxOptions,
+  OutboxStats,
+  RoutingMode,
+  RoutingOptions,
+  RoutingStats,
+  WatchSendWindow,
+  SendWindowPolicy,
+  SendWindowOptions,
+  SendWindowStats,
+  SendWindowEvent,
+  NodeSendWindow,
 } from './NativeWearConnectivity';
 import { DeviceEventEmitter } from 'react-native';
 
@@ -37,34 +117,219 @@ const WearConnectivity = WearConnectivityModule
 
 const getConnectedNodes = () => WearConnectivity.getConnectedNodes();
 
+const getNodeRegistryStats: GetNodeRegistryStats = () =>
+  WearConnectivity.getNodeRegistryStats();
+
+const configureNodeRegistry: ConfigureNodeRegistry = (options) =>
+  WearConnectivity.configureNodeRegistry(options);
+
+const getMetrics: GetMetrics = () => WearConnectivity.getMetrics();
+
+const configureMetrics: ConfigureMetrics = (options) =>
+  WearConnectivity.configureMetrics(options);
+
+/**
+ * Receives the metrics snapshots emitted every snapshotIntervalMs, see configureMetrics.
+ * @returns Unsubscribe function.
+ */
+const watchMetrics: WatchMetrics = (callback) => {
+  const subscription = DeviceEventEmitter.addListener('MetricsEvent', callback);
+  return () => subscription.remove();
+};
+
+/**
+ * Receives a SendWindowEvent when a node becomes congested or drains, see configureSendWindow.
+ * @returns Unsubscribe function.
+ */
+const watchSendWindow: WatchSendWindow = (callback) => {
+  const subscription = DeviceEventEmitter.addListener(
+    'SendWindowEvent',
+    callback
+  );
+  return () => subscription.remove();
+};
+
+const configureScheduler: ConfigureScheduler = (options) =>
+  WearConnectivity.configureScheduler(options);
+
+const getSchedulerStats: GetSchedulerStats = () =>
+  WearConnectivity.getSchedulerStats();
+
 const startFileTransfer: SendFile = (file, _metadata) => {
   return WearConnectivity.sendFile(file, _metadata);
 };
 
+const configureFileTransfer: ConfigureFileTransfer = (options) => {
+  return WearConnectivity.configureFileTransfer(options);
+};
+
+const getActiveFileTransfers: GetActiveFileTransfers = () =>
+  WearConnectivity.getActiveFileTransfers();
+
+const configureCompression: ConfigureCompression = (options) =>
+  WearConnectivity.configureCompression(options);
+
+const getCompressionStats: GetCompressionStats = () =>
+  WearConnectivity.getCompressionStats();
+
 const sendData: SendData = (path, data, options = {}) => {
   return WearConnectivity.sendData(path, data, options);
 };
 
+const getDeltaSyncStats: GetDeltaSyncStats = () =>
+  WearConnectivity.getDeltaSyncStats();
+
+/**
+ * Subscribes to the changes of the DataItems whose path starts with prefix.
+ * The changes of a sync burst are delivered together, in a single callback.
+ * @returns Unsubscribe function.
+ */
+const watchDataChanges: WatchDataChanges = (prefix, callback) => {
+  WearConnectivity.subscribeDataChanges(prefix);
+  const subscription = DeviceEventEmitter.addListener(
+    'DataChangedEvent',
+    (event: { changes: DataChange[] }) => {
+      const changes = event.changes.filter((change) =>
+        change.path.startsWith(prefix)
+      );
+      if (changes.length > 0) {
+        callback(changes);
+      }
+    }
+  );
+
+  return () => {
+    subscription.remove();
+    WearConnectivity.unsubscribeDataChanges(prefix);
+  };
+};
+
+const getDataItem: GetDataItem = (path) => WearConnectivity.getDataItem(path);
+
+const getDataItems: GetDataItems = (prefix) =>
+  WearConnectivity.getDataItems(prefix);
+
+const configureDataCache: ConfigureDataCache = (options) =>
+  WearConnectivity.configureDataCache(options);
+
+const getDataCacheStats: GetDataCacheStats = () =>
+  WearConnectivity.getDataCacheStats();
+
 export {
   getConnectedNodes,
+  getNodeRegistryStats,
+  configureNodeRegistry,
+  getMetrics,
+  configureMetrics,
+  watchMetrics,
+  watchSendWindow,
+  configureScheduler,
+  getSchedulerStats,
   startFileTransfer,
+  configureFileTransfer,
+  getActiveFileTransfers,
+  configureCompression,
+  getCompressionStats,
   sendData,
+  getDeltaSyncStats,
+  watchDataChanges,
+  getDataItem,
+  getDataItems,
+  configureDataCache,
+  getDataCacheStats,
   sendMessage,
   sendMessageWithPath,
+  sendMessageAsync,
+  sendRequest,
+  sendResponse,
+  getRequestStats,
+  configureBatching,
+  configureFragmentation,
+  getFragmentationStats,
+  configureInboundBatching,
+  configureDelivery,
+  configureCodec,
+  configureOutbox,
+  getOutboxStats,
+  sendMessageToNode,
+  configureRouting,
+  getRoutingStats,
+  configureSendWindow,
+  getSendWindowStats,
   watchEvents,
   WearConnectivity,
   DataOptionKey,
 };
-export type { ReplyCallback, ErrorCallback };
+export type {
+  ReplyCallback,
+  ErrorCallback,
+  NodeRegistryOptions,
+  NodeRegistryStats,
+  Metrics,
+  MetricsOptions,
+  PathMetrics,
+  LatencyHistogram,
+  SchedulerOptions,
+  SchedulerStats,
+  SendLane,
+  LaneOptions,
+  LaneStats,
+  SendMessageResult,
+  IncomingRequest,
+  RequestStats,
+  BatchingOptions,
+  FragmentationOptions,
+  FragmentationStats,
+  InboundBatchingOptions,
+  DeliveryMode,
+  DeliveryOptions,
+  CodecOptions,
+  PayloadEncoding,
+  OutboxOptions,
+  OutboxStats,
+  RoutingMode,
+  RoutingOptions,
+  RoutingStats,
+  SendWindowPolicy,
+  SendWindowOptions,
+  SendWindowStats,
+  SendWindowEvent,
+  NodeSendWindow,
+  FileTransferOptions,
+  ActiveFileTransfer,
+  CompressionOptions,
+  CompressionStats,
+  DataOptions,
+  DeltaSyncStats,
+  DataChange,
+  CachedDataItem,
+  DataCacheOptions,
+  DataCacheStats,
+};
 
 type WearParameters = {
   event: string;
   text: string;
 };
 
+// Key of the messages delivered together, see configureInboundBatching
+const BATCH_KEY = 'wearConnectivityBatch';
+
+type WearBatchParameters = {
+  [BATCH_KEY]: WearParameters[];
+};
+
 // Define the headless task
-const WearConnectivityTask = async (taskData: WearParameters) => {
+const WearConnectivityTask = async (
+  taskData: WearParameters | WearBatchParameters
+) => {
   // Emit an event or process the message as needed
+  if (BATCH_KEY in taskData) {
+    taskData[BATCH_KEY].forEach((message) =>
+      DeviceEventEmitter.emit('message', message)
+    );
+    return;
+  }
   DeviceEventEmitter.emit('message', taskData);
 };
 
@@ -3,6 +3,23 @@ import type {
   SendMessage,
   Payload,
   SendMessageWithPath,
+  SendMessageAsync,
+  SendRequest,
+  SendResponse,
+  GetRequestStats,
+  ConfigureBatching,
+  ConfigureInboundBatching,
+  ConfigureFragmentation,
+  GetFragmentationStats,
+  ConfigureDelivery,
+  ConfigureCodec,
+  ConfigureOutbox,
+  GetOutboxStats,
+  SendMessageToNode,
+  ConfigureRouting,
+  GetRoutingStats,
+  ConfigureSendWindow,
+  GetSendWindowStats,
 } from './NativeWearConnectivity';
 import { WearConnectivity } from './index';
 import { LIBRARY_NAME, IOS_NOT_SUPPORTED_WARNING } from './constants';
@@ -43,12 +60,159 @@ const sendMessageWithPath: SendMessageWithPath = (path, payload, cb, errCb) => {
   );
 };
 
+const sendMessageAsync: SendMessageAsync = (path, payload) => {
+  return WearConnectivity.sendMessageAsync(path, payload);
+};
+
+const sendRequest: SendRequest = (path, payload, timeoutMs = 0) => {
+  return WearConnectivity.sendRequest(path, payload, timeoutMs);
+};
+
+const sendResponse: SendResponse = (nodeId, path, requestId, payload) => {
+  return WearConnectivity.sendResponse(nodeId, path, requestId, payload);
+};
+
+const getRequestStats: GetRequestStats = () => {
+  return WearConnectivity.getRequestStats();
+};
+
+const configureBatching: ConfigureBatching = (options) => {
+  return WearConnectivity.configureBatching(options);
+};
+
+const configureFragmentation: ConfigureFragmentation = (options) => {
+  return WearConnectivity.configureFragmentation(options);
+};
+
+const getFragmentationStats: GetFragmentationStats = () => {
+  return WearConnectivity.getFragmentationStats();
+};
+
+const configureInboundBatching: ConfigureInboundBatching = (options) => {
+  return WearConnectivity.configureInboundBatching(options);
+};
+
+const configureDelivery: ConfigureDelivery = (options) => {
+  return WearConnectivity.configureDelivery(options);
+};
+
+const configureCodec: ConfigureCodec = (options) => {
+  return WearConnectivity.configureCodec(options);
+};
+
+const configureOutbox: ConfigureOutbox = (options) => {
+  return WearConnectivity.configureOutbox(options);
+};
+
+const getOutboxStats: GetOutboxStats = () => {
+  return WearConnectivity.getOutboxStats();
+};
+
+const sendMessageToNode: SendMessageToNode = (nodeId, path, message) => {
+  return WearConnectivity.sendMessageToNode(nodeId, path, message);
+};
+
+const configureRouting: ConfigureRouting = (options) => {
+  return WearConnectivity.configureRouting(options);
+};
+
+const getRoutingStats: GetRoutingStats = () => {
+  return WearConnectivity.getRoutingStats();
+};
+
+const configureSendWindow: ConfigureSendWindow = (options) => {
+  return WearConnectivity.configureSendWindow(options);
+};
+
+const getSendWindowStats: GetSendWindowStats = () => {
+  return WearConnectivity.getSendWindowStats();
+};
+
 const sendMessageMock: SendMessage = () =>
   console.warn(LIBRARY_NAME + 'message' + IOS_NOT_SUPPORTED_WARNING);
 
 const sendMessageWithPathMock: SendMessageWithPath = () =>
   console.warn(LIBRARY_NAME + 'messageWithPath' + IOS_NOT_SUPPORTED_WARNING);
 
+const sendMessageAsyncMock: SendMessageAsync = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'messageAsync' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const sendRequestMock: SendRequest = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'request' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const sendResponseMock: SendResponse = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'response' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const getRequestStatsMock: GetRequestStats = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'requestStats' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const configureBatchingMock: ConfigureBatching = () =>
+  console.warn(LIBRARY_NAME + 'batching' + IOS_NOT_SUPPORTED_WARNING);
+
+const configureFragmentationMock: ConfigureFragmentation = () =>
+  console.warn(LIBRARY_NAME + 'fragmentation' + IOS_NOT_SUPPORTED_WARNING);
+
+const getFragmentationStatsMock: GetFragmentationStats = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'fragmentationStats' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const configureInboundBatchingMock: ConfigureInboundBatching = () =>
+  console.warn(LIBRARY_NAME + 'inboundBatching' + IOS_NOT_SUPPORTED_WARNING);
+
+const configureDeliveryMock: ConfigureDelivery = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'delivery' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const configureCodecMock: ConfigureCodec = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'codec' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const configureOutboxMock: ConfigureOutbox = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'outbox' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const getOutboxStatsMock: GetOutboxStats = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'outboxStats' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const sendMessageToNodeMock: SendMessageToNode = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'messageToNode' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const configureRoutingMock: ConfigureRouting = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'routing' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const getRoutingStatsMock: GetRoutingStats = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'routingStats' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const configureSendWindowMock: ConfigureSendWindow = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'sendWindow' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
+const getSendWindowStatsMock: GetSendWindowStats = () =>
+  Promise.reject(
+    new Error(LIBRARY_NAME + 'sendWindowStats' + IOS_NOT_SUPPORTED_WARNING)
+  );
+
 let sendMessageExport: SendMessage = sendMessageMock;
 if (Platform.OS !== 'ios') {
   sendMessageExport = sendMessage;
@@ -59,7 +223,112 @@ if (Platform.OS !== 'ios') {
   sendMessageWithPathExport = sendMessageWithPath;
 }
 
+let sendMessageAsyncExport: SendMessageAsync = sendMessageAsyncMock;
+if (Platform.OS !== 'ios') {
+  sendMessageAsyncExport = sendMessageAsync;
+}
+
+let sendRequestExport: SendRequest = sendRequestMock;
+if (Platform.OS !== 'ios') {
+  sendRequestExport = sendRequest;
+}
+
+let sendResponseExport: SendResponse = sendResponseMock;
+if (Platform.OS !== 'ios') {
+  sendResponseExport = sendResponse;
+}
+
+let getRequestStatsExport: GetRequestStats = getRequestStatsMock;
+if (Platform.OS !== 'ios') {
+  getRequestStatsExport = getRequestStats;
+}
+
+let configureBatchingExport: ConfigureBatching = configureBatchingMock;
+if (Platform.OS !== 'ios') {
+  configureBatchingExport = configureBatching;
+}
+
+let configureFragmentationExport: ConfigureFragmentation =
+  configureFragmentationMock;
+if (Platform.OS !== 'ios') {
+  configureFragmentationExport = configureFragmentation;
+}
+
+let getFragmentationStatsExport: GetFragmentationStats =
+  getFragmentationStatsMock;
+if (Platform.OS !== 'ios') {
+  getFragmentationStatsExport = getFragmentationStats;
+}
+
+let configureInboundBatchingExport: ConfigureInboundBatching =
+  configureInboundBatchingMock;
+if (Platform.OS !== 'ios') {
+  configureInboundBatchingExport = configureInboundBatching;
+}
+
+let configureDeliveryExport: ConfigureDelivery = configureDeliveryMock;
+if (Platform.OS !== 'ios') {
+  configureDeliveryExport = configureDelivery;
+}
+
+let configureCodecExport: ConfigureCodec = configureCodecMock;
+if (Platform.OS !== 'ios') {
+  configureCodecExport = configureCodec;
+}
+
+let configureOutboxExport: ConfigureOutbox = configureOutboxMock;
+if (Platform.OS !== 'ios') {
+  configureOutboxExport = configureOutbox;
+}
+
+let getOutboxStatsExport: GetOutboxStats = getOutboxStatsMock;
+if (Platform.OS !== 'ios') {
+  getOutboxStatsExport = getOutboxStats;
+}
+
+let sendMessageToNodeExport: SendMessageToNode = sendMessageToNodeMock;
+if (Platform.OS !== 'ios') {
+  sendMessageToNodeExport = sendMessageToNode;
+}
+
+let configureRoutingExport: ConfigureRouting = configureRoutingMock;
+if (Platform.OS !== 'ios') {
+  configureRoutingExport = configureRouting;
+}
+
+let getRoutingStatsExport: GetRoutingStats = getRoutingStatsMock;
+if (Platform.OS !== 'ios') {
+  getRoutingStatsExport = getRoutingStats;
+}
+
+let configureSendWindowExport: ConfigureSendWindow = configureSendWindowMock;
+if (Platform.OS !== 'ios') {
+  configureSendWindowExport = configureSendWindow;
+}
+
+let getSendWindowStatsExport: GetSendWindowStats = getSendWindowStatsMock;
+if (Platform.OS !== 'ios') {
+  getSendWindowStatsExport = getSendWindowStats;
+}
+
 export {
   sendMessageExport as sendMessage,
   sendMessageWithPathExport as sendMessageWithPath,
+  sendMessageAsyncExport as sendMessageAsync,
+  sendRequestExport as sendRequest,
+  sendResponseExport as sendResponse,
+  getRequestStatsExport as getRequestStats,
+  configureBatchingExport as configureBatching,
+  configureFragmentationExport as configureFragmentation,
+  getFragmentationStatsExport as getFragmentationStats,
+  configureInboundBatchingExport as configureInboundBatching,
+  configureDeliveryExport as configureDelivery,
+  configureCodecExport as configureCodec,
+  configureOutboxExport as configureOutbox,
+  getOutboxStatsExport as getOutboxStats,
+  sendMessageToNodeExport as sendMessageToNode,
+  configureRoutingExport as configureRouting,
+  getRoutingStatsExport as getRoutingStats,
+  configureSendWindowExport as configureSendWindow,
+  getSendWindowStatsExport as getSendWindowStats,
 };